@@ -0,0 +1,121 @@
+package com.mincom.viva.ganttprint;
+
+/**
+ * Critical path and slack of a {@link Schedule}, computed from the
+ * finish-to-start predecessor links of its items.
+ * <p>
+ * The forward pass starts each item at the later of its planned start and the
+ * finish (plus lag) of its predecessors; the backward pass finishes each item
+ * at the earlier of the overall finish and the start (less lag) of its
+ * successors. Items without slack are critical. Both passes are a single walk
+ * of the topological order, so the whole calculation is O(V+E).
+ */
+public class CriticalPath {
+
+	private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory
+			.getLogger(CriticalPath.class);
+
+	private final DependencyGraph graph;
+	private final long[] earlyStart, earlyFinish, lateStart, lateFinish;
+	private long finish = Long.MIN_VALUE;
+
+	/**
+	 * @throws IllegalStateException
+	 *             if the predecessor links contain a cycle
+	 */
+	public CriticalPath(Schedule schedule) {
+		if (schedule == null)
+			throw new IllegalArgumentException("require non-null model");
+		this.graph = new DependencyGraph(schedule);
+		int n = graph.size;
+		earlyStart = new long[n];
+		earlyFinish = new long[n];
+		lateStart = new long[n];
+		lateFinish = new long[n];
+		long[] duration = new long[n];
+		for (int i = 0; i < n; i++) {
+			ScheduleItem si = schedule.get(i);
+			earlyStart[i] = si.getStart().getTime();
+			duration[i] = Math.max(0, si.getFinish().getTime() - earlyStart[i]);
+		}
+
+		int[] order = graph.topologicalOrder();
+
+		/* forward pass */
+		for (int o = 0; o < n; o++) {
+			int i = order[o];
+			for (int k = graph.predecessorOffsets[i]; k < graph.predecessorOffsets[i + 1]; k++) {
+				long s = earlyFinish[graph.predecessors[k]]
+						+ graph.predecessorLags[k];
+				if (s > earlyStart[i])
+					earlyStart[i] = s;
+			}
+			earlyFinish[i] = earlyStart[i] + duration[i];
+			if (earlyFinish[i] > finish)
+				finish = earlyFinish[i];
+		}
+
+		/* backward pass */
+		for (int o = n - 1; o >= 0; o--) {
+			int i = order[o];
+			long f = finish;
+			for (int k = graph.successorOffsets[i]; k < graph.successorOffsets[i + 1]; k++) {
+				long s = lateStart[graph.successors[k]]
+						- graph.successorLags[k];
+				if (s < f)
+					f = s;
+			}
+			lateFinish[i] = f;
+			lateStart[i] = f - duration[i];
+		}
+		logger.debug("critical path over [{}] items and [{}] links", n,
+				graph.getLinkCount());
+	}
+
+	DependencyGraph getGraph() {
+		return graph;
+	}
+
+	/**
+	 * @return the number of links between items of the schedule
+	 */
+	public int getLinkCount() {
+		return graph.getLinkCount();
+	}
+
+	/**
+	 * @return the latest early finish over all items
+	 */
+	public long getFinish() {
+		return finish;
+	}
+
+	public long getEarlyStart(int i) {
+		return earlyStart[i];
+	}
+
+	public long getEarlyFinish(int i) {
+		return earlyFinish[i];
+	}
+
+	public long getLateStart(int i) {
+		return lateStart[i];
+	}
+
+	public long getLateFinish(int i) {
+		return lateFinish[i];
+	}
+
+	/**
+	 * @return total slack in milliseconds of the item at schedule index
+	 *         <code>i</code>
+	 */
+	public long getSlack(int i) {
+		return lateFinish[i] - earlyFinish[i];
+	}
+
+	public boolean isCritical(int i) {
+		return getSlack(i) <= 0;
+	}
+
+}
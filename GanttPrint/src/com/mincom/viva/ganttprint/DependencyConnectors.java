@@ -0,0 +1,73 @@
+package com.mincom.viva.ganttprint;
+
+import java.awt.Color;
+
+import com.lowagie.text.pdf.PdfContentByte;
+
+/**
+ * Collects bar positions as rows are laid out and, at the end of each page,
+ * draws finish-to-start connectors between bars that landed on that page.
+ * Links that cross a page break are not drawn.
+ */
+class DependencyConnectors {
+
+	private static final float ELBOW = 3;
+
+	private final DependencyGraph graph;
+	private final float[] barStart, barFinish, barY;
+	/* page on which each row was last laid out, 0 if never */
+	private final int[] rowPage;
+	private int[] pageRows = new int[64];
+	private int pageRowCount = 0;
+	private int page = 1;
+
+	DependencyConnectors(DependencyGraph graph) {
+		this.graph = graph;
+		barStart = new float[graph.size];
+		barFinish = new float[graph.size];
+		barY = new float[graph.size];
+		rowPage = new int[graph.size];
+	}
+
+	void record(int row, float start, float finish, float y) {
+		barStart[row] = start;
+		barFinish[row] = finish;
+		barY[row] = y;
+		rowPage[row] = page;
+		if (pageRowCount == pageRows.length) {
+			int[] r = new int[pageRowCount * 2];
+			System.arraycopy(pageRows, 0, r, 0, pageRowCount);
+			pageRows = r;
+		}
+		pageRows[pageRowCount++] = row;
+	}
+
+	void paintPage(PdfContentByte canvas) {
+		if (pageRowCount > 0) {
+			canvas.saveState();
+			canvas.setLineWidth(0.3f);
+			canvas.setColorStroke(Color.darkGray);
+			for (int r = 0; r < pageRowCount; r++) {
+				int to = pageRows[r];
+				for (int k = graph.predecessorOffsets[to]; k < graph.predecessorOffsets[to + 1]; k++) {
+					int from = graph.predecessors[k];
+					if (rowPage[from] == page)
+						paintConnector(canvas, from, to);
+				}
+			}
+			canvas.restoreState();
+		}
+		pageRowCount = 0;
+		page++;
+	}
+
+	private void paintConnector(PdfContentByte canvas, int from, int to) {
+		float x = barFinish[from] + ELBOW;
+		canvas.moveTo(barFinish[from], barY[from]);
+		canvas.lineTo(x, barY[from]);
+		canvas.lineTo(x, barY[to]);
+		canvas.lineTo(barStart[to], barY[to]);
+		canvas.stroke();
+	}
+
+}
@@ -0,0 +1,133 @@
+package com.mincom.viva.ganttprint;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Compact (CSR style) adjacency structure over the predecessor links of a
+ * {@link Schedule}. Nodes are the schedule indexes of the items; links to
+ * items outside the schedule are ignored.
+ */
+class DependencyGraph {
+
+	private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory
+			.getLogger(DependencyGraph.class);
+
+	private final Schedule schedule;
+
+	final int size;
+
+	/* predecessors of node i are predecessors[predecessorOffsets[i] .. predecessorOffsets[i + 1]) */
+	final int[] predecessorOffsets;
+	final int[] predecessors;
+	final long[] predecessorLags;
+
+	/* successors of node i are successors[successorOffsets[i] .. successorOffsets[i + 1]) */
+	final int[] successorOffsets;
+	final int[] successors;
+	final long[] successorLags;
+
+	DependencyGraph(Schedule schedule) {
+		this.schedule = schedule;
+		size = schedule.size();
+		Map<ScheduleItem, Integer> index = new IdentityHashMap<ScheduleItem, Integer>(
+				size);
+		int links = 0;
+		for (int i = 0; i < size; i++) {
+			ScheduleItem si = schedule.get(i);
+			index.put(si, i);
+			links += si.getPredecessorCount();
+		}
+
+		/* predecessor rows, in schedule order */
+		predecessorOffsets = new int[size + 1];
+		int[] p = new int[links];
+		long[] pl = new long[links];
+		int[] successorCounts = new int[size];
+		int e = 0, ignored = 0;
+		for (int i = 0; i < size; i++) {
+			predecessorOffsets[i] = e;
+			ScheduleItem si = schedule.get(i);
+			for (int j = 0; j < si.getPredecessorCount(); j++) {
+				Integer from = index.get(si.getPredecessor(j));
+				if (from == null) {
+					ignored++;
+					continue;
+				}
+				p[e] = from;
+				pl[e] = si.getPredecessorLag(j);
+				successorCounts[from]++;
+				e++;
+			}
+		}
+		predecessorOffsets[size] = e;
+		if (e < links) {
+			int[] tp = new int[e];
+			System.arraycopy(p, 0, tp, 0, e);
+			p = tp;
+			long[] tpl = new long[e];
+			System.arraycopy(pl, 0, tpl, 0, e);
+			pl = tpl;
+		}
+		predecessors = p;
+		predecessorLags = pl;
+		if (ignored > 0)
+			logger.debug("ignored [{}] links to items outside the schedule",
+					ignored);
+
+		/* transpose into successor rows */
+		successorOffsets = new int[size + 1];
+		for (int i = 0; i < size; i++)
+			successorOffsets[i + 1] = successorOffsets[i] + successorCounts[i];
+		successors = new int[e];
+		successorLags = new long[e];
+		int[] fill = new int[size];
+		System.arraycopy(successorOffsets, 0, fill, 0, size);
+		for (int i = 0; i < size; i++) {
+			for (int k = predecessorOffsets[i]; k < predecessorOffsets[i + 1]; k++) {
+				int at = fill[predecessors[k]]++;
+				successors[at] = i;
+				successorLags[at] = predecessorLags[k];
+			}
+		}
+	}
+
+	int getLinkCount() {
+		return predecessors.length;
+	}
+
+	/**
+	 * Kahn's algorithm; O(V+E).
+	 *
+	 * @throws IllegalStateException
+	 *             if the links contain a cycle
+	 */
+	int[] topologicalOrder() {
+		int[] inDegree = new int[size];
+		for (int i = 0; i < size; i++)
+			inDegree[i] = predecessorOffsets[i + 1] - predecessorOffsets[i];
+		int[] order = new int[size];
+		int head = 0, tail = 0;
+		for (int i = 0; i < size; i++)
+			if (inDegree[i] == 0)
+				order[tail++] = i;
+		while (head < tail) {
+			int n = order[head++];
+			for (int k = successorOffsets[n]; k < successorOffsets[n + 1]; k++)
+				if (--inDegree[successors[k]] == 0)
+					order[tail++] = successors[k];
+		}
+		if (tail < size) {
+			int culprit = 0;
+			while (inDegree[culprit] == 0)
+				culprit++;
+			ScheduleItem si = schedule.get(culprit);
+			throw new IllegalStateException("dependency cycle involving ["
+					+ (size - tail) + "] schedule items, including item ["
+					+ culprit + "] work order [" + si.getWorkOrder()
+					+ "] task [" + si.getTaskNo() + "]");
+		}
+		return order;
+	}
+
+}
@@ -0,0 +1,157 @@
+package com.mincom.viva.ganttprint;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.lowagie.text.Font;
+import com.lowagie.text.pdf.BaseFont;
+
+/**
+ * Font selection for text that the built-in Helvetica (WinAnsi) fonts cannot
+ * show.
+ * <p>
+ * Text is checked per cell: WinAnsi text keeps using the built-in fonts, so
+ * prints without such text are unchanged. Other text uses a Unicode TrueType
+ * font, configured with {@link GanttPrint#setUnicodeFont(String)} or the
+ * <code>ganttprint.unicodeFont</code> system property. Each font file is read
+ * and parsed once per process and the resulting {@link BaseFont}, with its
+ * glyph width tables, is shared by all concurrent prints. It is embedded with
+ * Identity-H encoding as a subset, so the writer of each document tracks the
+ * glyphs that document uses and embeds only those.
+ */
+class Fonts {
+
+	private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory
+			.getLogger(Fonts.class);
+
+	static final String UNICODE_FONT_PROPERTY = "ganttprint.unicodeFont";
+
+	/* the WinAnsi (Cp1252) characters between 0x80 and 0x9f */
+	private static final String CP1252_EXTRAS = "\u20ac\u201a\u0192\u201e\u2026"
+			+ "\u2020\u2021\u02c6\u2030\u0160\u2039\u0152\u017d\u2018"
+			+ "\u2019\u201c\u201d\u2022\u2013\u2014\u02dc\u2122\u0161"
+			+ "\u203a\u0153\u017e\u0178";
+
+	/* parsed fonts by canonical path */
+	private static final Map<String, BaseFont> CACHE = new HashMap<String, BaseFont>();
+
+	/* the configured path and its font, only ever replaced as a whole */
+	private static final class UnicodeFont {
+
+		final String path;
+		/* null until first used when configured by the system property */
+		final BaseFont font;
+
+		UnicodeFont(String path, BaseFont font) {
+			this.path = path;
+			this.font = font;
+		}
+	}
+
+	private static volatile UnicodeFont unicodeFont = new UnicodeFont(System
+			.getProperty(UNICODE_FONT_PROPERTY), null);
+
+	static void setUnicodeFontPath(String path) {
+		UnicodeFont uf = new UnicodeFont(path, path == null ? null
+				: getUnicodeFont(path));
+		synchronized (Fonts.class) {
+			unicodeFont = uf;
+		}
+	}
+
+	static boolean isWinAnsi(String s) {
+		if (s == null)
+			return true;
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (c < 0x80 || (c >= 0xa0 && c <= 0xff))
+				continue;
+			if (CP1252_EXTRAS.indexOf(c) < 0)
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * @return <code>font</code> if it can show <code>text</code>, otherwise
+	 *         the Unicode font at the same size and style when one is
+	 *         configured
+	 */
+	static Font getFont(String text, Font font) {
+		if (isWinAnsi(text))
+			return font;
+		BaseFont bf = getUnicodeFont();
+		if (bf == null)
+			return font;
+		return new Font(bf, font.getSize(), font.getStyle());
+	}
+
+	/**
+	 * @return <code>baseFont</code> if it can show <code>text</code>,
+	 *         otherwise the Unicode font when one is configured
+	 */
+	static BaseFont getBaseFont(String text, BaseFont baseFont) {
+		if (isWinAnsi(text))
+			return baseFont;
+		BaseFont bf = getUnicodeFont();
+		return bf == null ? baseFont : bf;
+	}
+
+	private static BaseFont getUnicodeFont() {
+		UnicodeFont uf = unicodeFont;
+		if (uf.font != null || uf.path == null)
+			return uf.font;
+		BaseFont bf = getUnicodeFont(uf.path);
+		synchronized (Fonts.class) {
+			/* unless another font was set meanwhile */
+			if (unicodeFont == uf)
+				unicodeFont = new UnicodeFont(uf.path, bf);
+		}
+		return bf;
+	}
+
+	private static BaseFont getUnicodeFont(String path) {
+		try {
+			String key = new File(path).getCanonicalPath();
+			synchronized (CACHE) {
+				BaseFont bf = CACHE.get(key);
+				if (bf == null) {
+					logger.debug("loading unicode font from [{}]", key);
+					bf = BaseFont.createFont(key, BaseFont.IDENTITY_H,
+							BaseFont.EMBEDDED, false, readFontFile(key), null);
+					bf.setSubset(true);
+					CACHE.put(key, bf);
+				}
+				return bf;
+			}
+		} catch (Exception e) {
+			throw new RuntimeException("cannot load unicode font [" + path
+					+ "]", e);
+		}
+	}
+
+	/* held in memory so concurrent subsetting never re-reads the file */
+	private static byte[] readFontFile(String path) throws IOException {
+		File file = new File(path);
+		byte[] bs = new byte[(int) file.length()];
+		InputStream is = new FileInputStream(file);
+		try {
+			int n = 0;
+			while (n < bs.length) {
+				int r = is.read(bs, n, bs.length - n);
+				if (r < 0)
+					throw new IOException("unexpected end of font file ["
+							+ path + "]");
+				n += r;
+			}
+		} finally {
+			is.close();
+		}
+		return bs;
+	}
+
+}
@@ -0,0 +1,279 @@
+package com.mincom.viva.ganttprint;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.Shape;
+import java.awt.geom.Line2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.geom.RoundRectangle2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+import javax.imageio.ImageIO;
+
+import org.joda.time.DateTime;
+import org.joda.time.format.DateTimeFormatter;
+
+import com.mincom.viva.ganttprint.GanttPrint.SIZE;
+
+/**
+ * Raster preview of the first page of a {@link GanttPrint}: the header plus
+ * the rows that fit on page one, drawn with Java2D using the same geometry as
+ * the PDF. When the caller supplies the date range the schedule is never
+ * scanned, so the cost is independent of the schedule size.
+ * <p>
+ * Critical path highlighting and dependency connectors need the whole
+ * schedule and are not shown.
+ */
+public class GanttPreview {
+
+	private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory
+			.getLogger(GanttPreview.class);
+
+	private static final Font DATA_FONT = new Font("SansSerif", Font.PLAIN, 9);
+	private static final Font HEADER_FONT = new Font("SansSerif", Font.BOLD, 7);
+	private static final Font SCALE_FONT = new Font("SansSerif", Font.BOLD,
+			HeaderPdfPCellEventImpl.SCALE_FONT_SIZE);
+	private static final Color BAR_FILL = Color.decode("0xaaaaff");
+
+	/* same as the document margins of GanttPrint */
+	private static final int MARGIN = GanttPrint.BORDER_PADDING + 1;
+
+	private final Schedule schedule;
+	private final SIZE size;
+	private final float[] totalWidths = new float[GanttPrint.DATA_WIDTHS.length + 1];
+	private final Timeline timeline;
+	private final BufferedImage image;
+	private final SimpleDateFormat sdf = GanttPrint.newDateFormat();
+
+	/**
+	 * @param scale
+	 *            pixels per point
+	 */
+	public GanttPreview(Schedule schedule, SIZE size, float scale) {
+		this(schedule, size, scale, null, null);
+	}
+
+	/**
+	 * @param first
+	 *            earliest start to show, or null to scan the schedule
+	 * @param last
+	 *            latest finish to show, or null to scan the schedule
+	 */
+	public GanttPreview(Schedule schedule, SIZE size, float scale, Date first,
+			Date last) {
+		if (schedule == null)
+			throw new IllegalArgumentException("require non-null model");
+		this.schedule = schedule;
+		if (size == null)
+			throw new IllegalArgumentException("require non-null size");
+		this.size = size;
+		if (scale <= 0)
+			throw new IllegalArgumentException("require positive scale");
+		logger.debug("creating preview for gantt print");
+		for (int i = 0; i < GanttPrint.DATA_WIDTHS.length; i++)
+			totalWidths[i] = GanttPrint.DATA_WIDTHS[i];
+		float barWidth = GanttPrint.getBarWidth(size);
+		totalWidths[totalWidths.length - 1] = barWidth;
+		if (schedule.isEmpty())
+			timeline = null;
+		else if (first != null && last != null)
+			timeline = new Timeline(new DateTime(first), new DateTime(last),
+					barWidth, schedule.getWorkCalendar());
+		else
+			timeline = Timeline.forSchedule(schedule, barWidth);
+
+		float width = size.rectangle.getWidth();
+		float height = size.rectangle.getHeight();
+		image = new BufferedImage((int) Math.ceil(width * scale),
+				(int) Math.ceil(height * scale), BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = image.createGraphics();
+		try {
+			g.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+					RenderingHints.VALUE_ANTIALIAS_ON);
+			g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING,
+					RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+			g.scale(scale, scale);
+			g.setColor(Color.white);
+			g.fill(new Rectangle2D.Float(0, 0, width, height));
+			paintBorders(g, width, height);
+			if (timeline == null) {
+				g.setColor(Color.black);
+				g.setFont(DATA_FONT);
+				g.drawString("   *** no data ***", MARGIN, MARGIN
+						+ GanttPrint.BORDER_PADDING * 3);
+			} else {
+				paintHeader(g);
+				int rows = Math.min(schedule.size(), getRowsPerPage(size));
+				for (int row = 0; row < rows; row++)
+					paintRow(g, row);
+			}
+		} finally {
+			g.dispose();
+		}
+		logger.debug("created preview for gantt print");
+	}
+
+	/**
+	 * @return the number of schedule rows on the first page
+	 */
+	static int getRowsPerPage(SIZE size) {
+		float available = size.rectangle.getHeight() - MARGIN * 2
+				- GanttPrint.ROW_HEIGHT;
+		return Math.max(0, (int) (available / GanttPrint.ROW_HEIGHT));
+	}
+
+	private void paintBorders(Graphics2D g, float width, float height) {
+		g.setStroke(new BasicStroke(0.5f));
+		g.setColor(Color.black);
+		g.draw(new Rectangle2D.Float(GanttPrint.BORDER_PADDING,
+				GanttPrint.BORDER_PADDING, width - GanttPrint.BORDER_PADDING
+						* 2, height - GanttPrint.BORDER_PADDING * 2));
+	}
+
+	private void paintHeader(Graphics2D g) {
+		float top = MARGIN;
+		float x = MARGIN;
+		for (int i = 0; i < GanttPrint.DATA_HEADERS.length; i++) {
+			paintTextCell(g, x, top, totalWidths[i], GanttPrint.DATA_HEADERS[i],
+					HEADER_FONT);
+			x += totalWidths[i];
+		}
+		Rectangle2D.Float cell = paintBarCell(g, x, top);
+		ScaleLayout layout = timeline.scaleLayout;
+		DateTimeFormatter dtf = getFormatter();
+		g.setColor(Color.black);
+		g.setFont(SCALE_FONT);
+		Shape clip = g.getClip();
+		g.clip(cell);
+		float y = cell.y + cell.height - cell.height / 3;
+		for (int i = 0; i < layout.ticks.length; i++)
+			g.drawString(layout.ticks[i].toString(dtf), cell.x + layout.tickX[i]
+					+ HeaderPdfPCellEventImpl.LEFT_PADDING, y);
+		g.setClip(clip);
+	}
+
+	private DateTimeFormatter getFormatter() {
+		switch (timeline.scaleLevel) {
+		case DAILY:
+			return HeaderPdfPCellEventImpl.DAILY_FORMATTER;
+		case WEEKLY:
+			return HeaderPdfPCellEventImpl.WEEKLY_FORMATTER;
+		default:
+			return HeaderPdfPCellEventImpl.MONTHLY_FORMATTER;
+		}
+	}
+
+	private void paintRow(Graphics2D g, int row) {
+		ScheduleItem si = schedule.get(row);
+		float top = MARGIN + (row + 1) * GanttPrint.ROW_HEIGHT;
+		String[] data = new String[] { si.getWorkOrder(), si.getTaskNo(),
+				si.getDescription(), sdf.format(si.getStart()),
+				sdf.format(si.getFinish()) };
+		float x = MARGIN;
+		for (int i = 0; i < data.length; i++) {
+			paintTextCell(g, x, top, totalWidths[i], data[i], DATA_FONT);
+			x += totalWidths[i];
+		}
+		Rectangle2D.Float cell = paintBarCell(g, x, top);
+
+		float barStart = timeline.getX(si.getStart().getTime());
+		float barFinish = timeline.getX(si.getFinish().getTime());
+		float bx = cell.x + barStart;
+		float bw = barFinish - barStart;
+		float by = cell.y + cell.height / 3;
+		float bh = cell.height / 3;
+		g.setStroke(new BasicStroke(0.5f));
+		/* a supplied date range may be narrower than the bars */
+		Shape clip = g.getClip();
+		g.clip(cell);
+		if (bw < PdfPCellEventImpl.MIN_BAR_WIDTH) {
+			g.setColor(Color.blue);
+			g.fill(new Rectangle2D.Float(bx + bw / 2
+					- PdfPCellEventImpl.MIN_BAR_WIDTH / 2, by,
+					PdfPCellEventImpl.MIN_BAR_WIDTH, bh));
+		} else {
+			/* shadow */
+			RoundRectangle2D shadow = new RoundRectangle2D.Float(bx + 2,
+					by + 1, bw, bh, 2, 2);
+			g.setColor(Color.gray);
+			g.fill(shadow);
+			g.draw(shadow);
+
+			/* bar */
+			RoundRectangle2D bar = new RoundRectangle2D.Float(bx, by, bw, bh,
+					2, 2);
+			g.setColor(BAR_FILL);
+			g.fill(bar);
+			g.setColor(Color.blue);
+			g.draw(bar);
+		}
+		g.setClip(clip);
+	}
+
+	private void paintTextCell(Graphics2D g, float x, float top, float width,
+			String text, Font font) {
+		Rectangle2D.Float cell = new Rectangle2D.Float(x, top, width,
+				GanttPrint.ROW_HEIGHT);
+		if (text != null) {
+			Shape clip = g.getClip();
+			g.clip(cell);
+			g.setColor(Color.black);
+			g.setFont(font);
+			g.drawString(text, x + 5, top + font.getSize2D() + 2);
+			g.setClip(clip);
+		}
+		g.setStroke(new BasicStroke(0.5f));
+		g.setColor(Color.gray);
+		g.draw(cell);
+	}
+
+	private Rectangle2D.Float paintBarCell(Graphics2D g, float x, float top) {
+		Rectangle2D.Float cell = new Rectangle2D.Float(x, top,
+				totalWidths[totalWidths.length - 1], GanttPrint.ROW_HEIGHT);
+		ScaleLayout layout = timeline.scaleLayout;
+
+		g.setColor(Color.lightGray);
+		for (int i = 0; i < layout.shadeX.length; i++)
+			g.fill(new Rectangle2D.Float(cell.x + layout.shadeX[i], cell.y,
+					layout.shadeWidth[i], cell.height));
+
+		g.setColor(Color.black);
+		g.setStroke(new BasicStroke(
+				timeline.scaleLevel == GanttPrint.SCALE_LEVEL.DAILY ? 0.2f
+						: 0.5f));
+		for (int i = 0; i < layout.ticks.length; i++) {
+			float tx = cell.x + layout.tickX[i];
+			g.draw(new Line2D.Float(tx, cell.y, tx, cell.y + cell.height));
+		}
+
+		g.setStroke(new BasicStroke(0.5f));
+		g.setColor(Color.gray);
+		g.draw(cell);
+		g.setStroke(new BasicStroke(1));
+		g.setColor(Color.black);
+		g.draw(new Line2D.Float(cell.x, cell.y, cell.x, cell.y + cell.height));
+		return cell;
+	}
+
+	public BufferedImage getImage() {
+		return image;
+	}
+
+	public byte[] getPngBytes() {
+		try {
+			ByteArrayOutputStream baos = new ByteArrayOutputStream();
+			ImageIO.write(image, "png", baos);
+			return baos.toByteArray();
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+}
@@ -3,11 +3,11 @@ package com.mincom.viva.ganttprint;
 import java.awt.Color;
 import java.io.ByteArrayOutputStream;
 import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.TimeZone;
 
 import org.joda.time.DateTime;
-import org.joda.time.Duration;
-import org.joda.time.Interval;
 import org.joda.time.format.DateTimeFormat;
 import org.joda.time.format.DateTimeFormatter;
 
@@ -29,9 +29,14 @@ public class GanttPrint {
 
 	static final Font DATA_FONT = new Font(Font.HELVETICA, 9);
 	static final Font HEADER_FONT = new Font(Font.HELVETICA, 7, Font.BOLD);
+	static final Font SUMMARY_FONT = new Font(Font.HELVETICA, 12);
 	static final int TABLE_WIDTH = 500;
 	static final int ROW_HEIGHT = 19;
 	static final int BORDER_PADDING = 5;
+	static final Color ADDED_BACKGROUND = Color.decode("0xccffcc");
+	static final Color REMOVED_BACKGROUND = Color.decode("0xffcccc");
+	/* rows held before the table is written out and its rows released */
+	static final int FLUSH_ROWS = 100;
 
 	public enum SIZE {
 		A2(PageSize.A2.rotate()), A3(PageSize.A3.rotate()), A4(PageSize.A4
@@ -44,59 +49,88 @@ public class GanttPrint {
 		}
 	}
 
-	private final float[] dataWidths = new float[] { 60, 30, 220, 90, 90 };
-	final float dataWidth;
-	{
+	public enum OPTION {
+		/** draw finish-to-start connectors between dependent bars */
+		DEPENDENCY_CONNECTORS;
+	}
+
+	static final String[] DATA_HEADERS = new String[] { "Work Order", "Task",
+			"Description", "Start", "Finish" };
+	static final float[] DATA_WIDTHS = new float[] { 60, 30, 220, 90, 90 };
+	static final float DATA_WIDTH;
+	static {
 		int dw = 0;
-		for (int i = 0; i < dataWidths.length; dw += dataWidths[i++])
+		for (int i = 0; i < DATA_WIDTHS.length; dw += DATA_WIDTHS[i++])
 			;
-		dataWidth = dw;
+		DATA_WIDTH = dw;
 	}
-	private final float[] totalWidths = new float[dataWidths.length + 1];
+	private final float[] totalWidths = new float[DATA_WIDTHS.length + 1];
 	private final float barWidth;
 	private final PdfPTable table = new PdfPTable(totalWidths.length);
 	{
 		table.setHorizontalAlignment(PdfPTable.ALIGN_LEFT);
 		table.setLockedWidth(true);
+		table.setComplete(false);
 	}
+	private int pendingRows = 0;
 	private final PdfWriter pdfWriter;
 	private final Document document;
 	private final ByteArrayOutputStream baos;
 	private final Schedule schedule;
+	/* only established for a baseline overlay */
+	private final ScheduleOverlay overlay;
 	final SIZE size;
+	private final EnumSet<OPTION> options = EnumSet.noneOf(OPTION.class);
 
-	private final SimpleDateFormat sdf = new SimpleDateFormat(
-			"dd/MM/yyyy HH:mm");
-	{
-		sdf.setTimeZone(TimeZone.getTimeZone("GMT"));
-	}
-
-	DateTime first = null, last = null;
-	private long range;
+	private final SimpleDateFormat sdf = newDateFormat();
 
 	enum SCALE_LEVEL {
 		DAILY, WEEKLY, MONTHLY;
 	}
 
-	SCALE_LEVEL scaleLevel;
+	Timeline timeline;
+
+	/* only established when the schedule has predecessor links */
+	CriticalPath criticalPath = null;
+	DependencyConnectors connectors = null;
 
 	public GanttPrint(Schedule s) {
 		this(s, SIZE.A2);
 	}
 
 	public GanttPrint(Schedule schedule, SIZE size) {
+		this(null, schedule, size);
+	}
+
+	public GanttPrint(Schedule schedule, SIZE size, OPTION... options) {
+		this(null, schedule, size, options);
+	}
+
+	/**
+	 * Overlays the current schedule on a baseline: items are matched on work
+	 * order and task number, baseline bars are drawn as ghosts behind the
+	 * current bars, and added and removed items are flagged.
+	 *
+	 * @param baseline
+	 *            the baseline schedule, or null for a plain print
+	 */
+	public GanttPrint(Schedule baseline, Schedule schedule, SIZE size,
+			OPTION... options) {
 		if (schedule == null)
 			throw new IllegalArgumentException("require non-null model");
 		this.schedule = schedule;
+		this.overlay = baseline == null ? null : new ScheduleOverlay(baseline,
+				schedule);
 		if (size == null)
 			throw new IllegalArgumentException("require non-null size");
 		this.size = size;
+		if (options != null)
+			this.options.addAll(Arrays.asList(options));
 		try {
 			logger.debug("creating document for gantt print");
-			for (int i = 0; i < dataWidths.length; i++)
-				totalWidths[i] = dataWidths[i];
-			barWidth = size.rectangle.getWidth() - dataWidth - BORDER_PADDING
-					* 2 - 2;
+			for (int i = 0; i < DATA_WIDTHS.length; i++)
+				totalWidths[i] = DATA_WIDTHS[i];
+			barWidth = getBarWidth(size);
 			totalWidths[totalWidths.length - 1] = barWidth;
 			pdfWriter = PdfWriter.getInstance(document = new Document(
 					this.size.rectangle),
@@ -107,11 +141,14 @@ public class GanttPrint {
 			document.setMargins(BORDER_PADDING + 1, BORDER_PADDING + 1,
 					BORDER_PADDING + 1, BORDER_PADDING + 1);
 			document.open();
-			if (schedule.isEmpty()) {
+			if (schedule.isEmpty() && (baseline == null || baseline.isEmpty())) {
 				document.add(new Paragraph(BORDER_PADDING * 3,
 						"   *** no data ***"));
 			} else {
-				establishDateRange();
+				timeline = baseline == null ? Timeline.forSchedule(schedule,
+						barWidth) : Timeline.forSchedules(barWidth,
+						schedule.getWorkCalendar(), baseline, schedule);
+				establishDependencies();
 				printScheduleData();
 				printSummary();
 			}
@@ -124,61 +161,52 @@ public class GanttPrint {
 		}
 	}
 
-	private void establishDateRange() {
-		for (ScheduleItem si : schedule) {
-			DateTime start = new DateTime(si.getStart());
-			if (first == null)
-				first = new DateTime(start);
-			if (start.isBefore(first))
-				first = start;
-			DateTime finish = new DateTime(si.getFinish());
-			if (last == null)
-				last = new DateTime(finish);
-			if (finish.isAfter(last))
-				last = finish;
-		}
-		logger.debug("first: {}", first);
-		logger.debug("last: {}", last);
-		if (first.isAfter(last))
-			throw new IllegalStateException("first start date [" + first
-					+ "] is after last finish date [" + last + "]");
-		padDateRange();
-		establishScaleLevel();
+	/**
+	 * Sets the TrueType font used, process-wide, for text that the built-in
+	 * Helvetica cannot show; null reverts to Helvetica only. The font is
+	 * parsed once and embedded as a per-document subset.
+	 */
+	public static void setUnicodeFont(String path) {
+		Fonts.setUnicodeFontPath(path);
 	}
 
-	private void padDateRange() {
-		DateTime f = first;
-		DateTime l = last;
+	static float getBarWidth(SIZE size) {
+		return size.rectangle.getWidth() - DATA_WIDTH - BORDER_PADDING * 2 - 2;
+	}
 
-		/* pad out to week boundaries */
-		f = f.withMillisOfDay(0).withDayOfWeek(1);
-		l = l.withMillisOfDay(0).withDayOfWeek(1).plusWeeks(1).minusSeconds(1);
+	static SimpleDateFormat newDateFormat() {
+		SimpleDateFormat sdf = new SimpleDateFormat("dd/MM/yyyy HH:mm");
+		sdf.setTimeZone(TimeZone.getTimeZone("GMT"));
+		return sdf;
+	}
 
-		/* if close to week boundaries pad out by another week */
-		if (new Interval(f.getMillis(), first.getMillis()).toDuration()
-				.isShorterThan(Duration.standardDays(2))) {
-			f = f.minusWeeks(1);
+	private void establishDependencies() {
+		boolean linked = false;
+		for (ScheduleItem si : schedule) {
+			if (si.getPredecessorCount() > 0) {
+				linked = true;
+				break;
+			}
 		}
-		if (new Interval(last.getMillis(), l.getMillis()).toDuration()
-				.isShorterThan(Duration.standardDays(2))) {
-			l = l.plusWeeks(1);
+		if (!linked)
+			return;
+		try {
+			criticalPath = new CriticalPath(schedule);
+		} catch (IllegalStateException e) {
+			logger.warn("printing without critical path: {}", e.getMessage());
+			return;
 		}
-
-		/* set state */
-		first = f;
-		last = l;
-		range = last.getMillis() - first.getMillis();
+		if (criticalPath.getLinkCount() == 0) {
+			criticalPath = null;
+			return;
+		}
+		if (options.contains(OPTION.DEPENDENCY_CONNECTORS))
+			connectors = new DependencyConnectors(criticalPath.getGraph());
 	}
 
-	private void establishScaleLevel() {
-		Duration d = new Duration(range);
-		if (d.isLongerThan(Duration.standardDays(365))) {
-			scaleLevel = SCALE_LEVEL.MONTHLY;
-		} else if (d.isLongerThan(Duration.standardDays(30))) {
-			scaleLevel = SCALE_LEVEL.WEEKLY;
-		} else {
-			scaleLevel = SCALE_LEVEL.DAILY;
-		}
+	boolean isCritical(int row) {
+		return criticalPath != null && row >= 0
+				&& criticalPath.isCritical(row);
 	}
 
 	private void printScheduleData() throws DocumentException {
@@ -188,40 +216,82 @@ public class GanttPrint {
 		table.setTotalWidth(totalWidths);
 
 		/* set headers */
-		table.addCell(newHeaderCell("Work Order"));
-		table.addCell(newHeaderCell("Task"));
-		table.addCell(newHeaderCell("Description"));
-		table.addCell(newHeaderCell("Start"));
-		table.addCell(newHeaderCell("Finish"));
+		for (String header : DATA_HEADERS)
+			table.addCell(newHeaderCell(header));
 		table.addCell(newBarHeaderCell());
 		table.setHeaderRows(1);
 
 		logger.debug("schedule contains [{}] items", schedule.size());
 
-		for (ScheduleItem si : schedule) {
-			table.addCell(newDataCell(si.getWorkOrder()));
-			table.addCell(newDataCell(si.getTaskNo()));
-			table.addCell(newDataCell(si.getDescription()));
-			String start = sdf.format(si.getStart());
-			if (start == null)
-				start = "null";
-			table.addCell(newDataCell(start));
-			String finish = sdf.format(si.getFinish());
-			if (finish == null)
-				finish = "null";
-			table.addCell(newDataCell(finish));
-			table.addCell(newBarCell(si));
+		if (overlay == null) {
+			for (int row = 0; row < schedule.size(); row++)
+				addRow(schedule.get(row), null, row, null);
+		} else {
+			logger.debug("overlay contains [{}] rows", overlay.size());
+			final Schedule baseline = overlay.getBaseline();
+			overlay.forEachRow(new ScheduleOverlay.RowCallback() {
+
+				@Override
+				public void processRow(int baselineIndex, int currentIndex) {
+					try {
+						if (baselineIndex < 0)
+							addRow(schedule.get(currentIndex), null,
+									currentIndex, ADDED_BACKGROUND);
+						else if (currentIndex < 0)
+							addRow(null, baseline.get(baselineIndex), -1,
+									REMOVED_BACKGROUND);
+						else
+							addRow(schedule.get(currentIndex), baseline
+									.get(baselineIndex), currentIndex, null);
+					} catch (DocumentException e) {
+						throw new RuntimeException(e);
+					}
+				}
+			});
 		}
 
 		table.setComplete(true);
 		document.add(table);
 	}
 
-	private PdfPCell newBarCell(ScheduleItem si) {
+	/**
+	 * Adds a row, writing out the table every {@link #FLUSH_ROWS} rows so the
+	 * cells of rows already on the page can be released.
+	 *
+	 * @param si
+	 *            the current item, or null if removed from the baseline
+	 * @param baselineItem
+	 *            the baseline item, or null if not overlaid
+	 * @param row
+	 *            index of the current item in the schedule, or -1
+	 */
+	private void addRow(ScheduleItem si, ScheduleItem baselineItem, int row,
+			Color background) throws DocumentException {
+		ScheduleItem data = si != null ? si : baselineItem;
+		table.addCell(newDataCell(data.getWorkOrder(), background));
+		table.addCell(newDataCell(data.getTaskNo(), background));
+		table.addCell(newDataCell(data.getDescription(), background));
+		String start = sdf.format(data.getStart());
+		if (start == null)
+			start = "null";
+		table.addCell(newDataCell(start, background));
+		String finish = sdf.format(data.getFinish());
+		if (finish == null)
+			finish = "null";
+		table.addCell(newDataCell(finish, background));
+		table.addCell(newBarCell(si, baselineItem, row));
+		if (++pendingRows == FLUSH_ROWS) {
+			document.add(table);
+			pendingRows = 0;
+		}
+	}
+
+	private PdfPCell newBarCell(ScheduleItem si, ScheduleItem baselineItem,
+			int row) {
 		PdfPCell cell = newCell(/* empty */);
 		cell.setBorderColorLeft(Color.black);
 		cell.setBorderWidthLeft(1);
-		cell.setCellEvent(new PdfPCellEventImpl(this, si));
+		cell.setCellEvent(new PdfPCellEventImpl(this, si, baselineItem, row));
 		return cell;
 	}
 
@@ -235,13 +305,15 @@ public class GanttPrint {
 
 	private PdfPCell newHeaderCell(String content) {
 		PdfPCell cell = newCell();
-		cell.addElement(newChunk(content, HEADER_FONT));
+		cell.addElement(newChunk(content, Fonts.getFont(content, HEADER_FONT)));
 		return cell;
 	}
 
-	private PdfPCell newDataCell(String content) {
+	private PdfPCell newDataCell(String content, Color background) {
 		PdfPCell cell = newCell();
-		cell.addElement(newChunk(content, DATA_FONT));
+		cell.addElement(newChunk(content, Fonts.getFont(content, DATA_FONT)));
+		if (background != null)
+			cell.setBackgroundColor(background);
 		return cell;
 	}
 
@@ -264,24 +336,25 @@ public class GanttPrint {
 	}
 
 	float getX(long instant) {
-		float x = (instant - first.getMillis()) * getScalingFactor();
-		return x;
-	}
-
-	private float getScalingFactor() {
-		return barWidth == 0 ? 1 : (barWidth / range);
+		return timeline.getX(instant);
 	}
 
 	private void printSummary() throws DocumentException {
 		DateTimeFormatter dtf = DateTimeFormat.mediumDateTime();
 		document.newPage();
-		Paragraph p = new Paragraph("printed " + schedule.size()
-				+ " schedule items, ranging between " + first.toString(dtf)
-				+ " and " + last.toString(dtf));
-		p.setAlignment(Paragraph.ALIGN_CENTER);
-		p.setLeading(20);
-		document.add(p);
-		p = new Paragraph("printed at " + new DateTime().toString(dtf));
+		printSummaryLine("printed " + schedule.size()
+				+ " schedule items, ranging between "
+				+ timeline.first.toString(dtf) + " and "
+				+ timeline.last.toString(dtf));
+		if (overlay != null)
+			printSummaryLine("compared with baseline: "
+					+ overlay.getAddedCount() + " added, "
+					+ overlay.getRemovedCount() + " removed");
+		printSummaryLine("printed at " + new DateTime().toString(dtf));
+	}
+
+	private void printSummaryLine(String text) throws DocumentException {
+		Paragraph p = new Paragraph(text, Fonts.getFont(text, SUMMARY_FONT));
 		p.setAlignment(Paragraph.ALIGN_CENTER);
 		p.setLeading(20);
 		document.add(p);
@@ -12,15 +12,15 @@ import com.lowagie.text.pdf.PdfContentByte;
 
 class HeaderPdfPCellEventImpl extends PdfPCellEventImpl {
 
-	private static final int LEFT_PADDING = 3;
+	static final int LEFT_PADDING = 3;
 	private static final BaseFont SCALE_FONT;
-	private static final int SCALE_FONT_SIZE = 7;
+	static final int SCALE_FONT_SIZE = 7;
 
-	private final DateTimeFormatter dailyFormatter = DateTimeFormat
+	static final DateTimeFormatter DAILY_FORMATTER = DateTimeFormat
 			.forPattern("EEE d MMM");
-	private final DateTimeFormatter weeklyFormatter = DateTimeFormat
+	static final DateTimeFormatter WEEKLY_FORMATTER = DateTimeFormat
 			.forPattern("d MMM");
-	private final DateTimeFormatter monthlyFormatter = DateTimeFormat
+	static final DateTimeFormatter MONTHLY_FORMATTER = DateTimeFormat
 			.forPattern("MMM");
 
 	static {
@@ -33,7 +33,7 @@ class HeaderPdfPCellEventImpl extends PdfPCellEventImpl {
 	}
 
 	public HeaderPdfPCellEventImpl(GanttPrint ganttPrint) {
-		super(ganttPrint, null);
+		super(ganttPrint, null, -1);
 	}
 
 	@Override
@@ -45,31 +45,32 @@ class HeaderPdfPCellEventImpl extends PdfPCellEventImpl {
 	protected void paintDay(PdfContentByte canvas, Rectangle position, float f,
 			DateTime dt) {
 		super.paintDay(canvas, position, f, dt);
-		writeDateHeader(canvas, position, f, dt, dailyFormatter);
+		writeDateHeader(canvas, position, f, dt, DAILY_FORMATTER);
 	}
 
 	@Override
 	protected void paintWeek(PdfContentByte canvas, Rectangle position,
 			float f, DateTime dt) {
 		super.paintWeek(canvas, position, f, dt);
-		writeDateHeader(canvas, position, f, dt, weeklyFormatter);
+		writeDateHeader(canvas, position, f, dt, WEEKLY_FORMATTER);
 	}
 
 	@Override
 	protected void paintMonth(PdfContentByte canvas, Rectangle position,
 			float f, DateTime dt) {
 		super.paintMonth(canvas, position, f, dt);
-		writeDateHeader(canvas, position, f, dt, monthlyFormatter);
+		writeDateHeader(canvas, position, f, dt, MONTHLY_FORMATTER);
 	}
 
 	private void writeDateHeader(PdfContentByte canvas, Rectangle position,
 			float f, DateTime dt, DateTimeFormatter dtf) {
 		canvas.setColorFill(Color.black);
-		canvas.setFontAndSize(SCALE_FONT, SCALE_FONT_SIZE);
+		String label = dt.toString(dtf);
+		canvas.setFontAndSize(Fonts.getBaseFont(label, SCALE_FONT),
+				SCALE_FONT_SIZE);
 		float x = position.getLeft() + f + LEFT_PADDING;
 		float y = position.getBottom() + position.getHeight() / 3;
-		canvas.showTextAligned(PdfContentByte.ALIGN_LEFT, dt.toString(dtf), x,
-				y, 0);
+		canvas.showTextAligned(PdfContentByte.ALIGN_LEFT, label, x, y, 0);
 	}
 
 }
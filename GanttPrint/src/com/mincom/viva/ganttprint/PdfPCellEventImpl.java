@@ -3,23 +3,41 @@ package com.mincom.viva.ganttprint;
 import java.awt.Color;
 
 import org.joda.time.DateTime;
-import org.joda.time.Duration;
 
 import com.lowagie.text.Rectangle;
 import com.lowagie.text.pdf.PdfContentByte;
 import com.lowagie.text.pdf.PdfPCell;
 import com.lowagie.text.pdf.PdfPCellEvent;
 import com.lowagie.text.pdf.PdfPTable;
-import com.mincom.viva.ganttprint.GanttPrint.SCALE_LEVEL;
 
 class PdfPCellEventImpl implements PdfPCellEvent {
 
+	/* bars narrower than this are drawn as a plain marker, in points */
+	static final float MIN_BAR_WIDTH = 1;
+
 	private final ScheduleItem scheduleItem;
+	private final ScheduleItem baselineItem;
+	private final int row;
 	protected final GanttPrint ganttPrint;
 
-	public PdfPCellEventImpl(GanttPrint ganttPrint, ScheduleItem si) {
+	public PdfPCellEventImpl(GanttPrint ganttPrint, ScheduleItem si, int row) {
+		this(ganttPrint, si, null, row);
+	}
+
+	/**
+	 * @param si
+	 *            the current item, or null if removed from the baseline
+	 * @param baselineItem
+	 *            the baseline item drawn as a ghost, or null
+	 * @param row
+	 *            index of the current item in the schedule, or -1
+	 */
+	public PdfPCellEventImpl(GanttPrint ganttPrint, ScheduleItem si,
+			ScheduleItem baselineItem, int row) {
 		this.ganttPrint = ganttPrint;
 		this.scheduleItem = si;
+		this.baselineItem = baselineItem;
+		this.row = row;
 	}
 
 	@Override
@@ -33,32 +51,22 @@ class PdfPCellEventImpl implements PdfPCellEvent {
 	}
 
 	private void paintScale(PdfContentByte canvas, Rectangle position) {
-		DateTime d0 = new DateTime(ganttPrint.first);
-		d0.withMillisOfDay(0);
-		while (d0.isBefore(ganttPrint.last)) {
-			DateTime d0end = d0.plusDays(1).minusSeconds(1);
-			float x0 = ganttPrint.getX(d0.getMillis());
-			float w0 = ganttPrint.getX(d0end.getMillis()) - x0;
-			int dayOfWeek = d0.getDayOfWeek();
-			if (dayOfWeek == 6) { /* weekend */
-				if (ganttPrint.scaleLevel == SCALE_LEVEL.DAILY
-						|| ganttPrint.scaleLevel == SCALE_LEVEL.WEEKLY) {
-					DateTime d1 = d0.plusDays(1);
-					float x1 = ganttPrint.getX(d1.getMillis());
-					paintWeekend(canvas, position, x0, w0);
-					paintWeekend(canvas, position, x1, w0);
-				}
+		ScaleLayout layout = ganttPrint.timeline.scaleLayout;
+		for (int i = 0; i < layout.shadeX.length; i++)
+			paintNonWorking(canvas, position, layout.shadeX[i],
+					layout.shadeWidth[i]);
+		for (int i = 0; i < layout.ticks.length; i++) {
+			switch (ganttPrint.timeline.scaleLevel) {
+			case DAILY:
+				paintDay(canvas, position, layout.tickX[i], layout.ticks[i]);
+				break;
+			case WEEKLY:
+				paintWeek(canvas, position, layout.tickX[i], layout.ticks[i]);
+				break;
+			case MONTHLY:
+				paintMonth(canvas, position, layout.tickX[i], layout.ticks[i]);
+				break;
 			}
-			if (ganttPrint.scaleLevel == SCALE_LEVEL.DAILY)
-				paintDay(canvas, position, x0, d0);
-			if (dayOfWeek == 1)
-				if (ganttPrint.scaleLevel == SCALE_LEVEL.WEEKLY)
-					paintWeek(canvas, position, x0, d0);
-			int dayOfMonth = d0.getDayOfMonth();
-			if (dayOfMonth == 1)
-				if (ganttPrint.scaleLevel == SCALE_LEVEL.MONTHLY)
-					paintMonth(canvas, position, x0, d0);
-			d0 = d0.plus(Duration.standardDays(1));
 		}
 	}
 
@@ -87,7 +95,7 @@ class PdfPCellEventImpl implements PdfPCellEvent {
 		canvas.stroke();
 	}
 
-	protected void paintWeekend(PdfContentByte canvas, Rectangle position,
+	protected void paintNonWorking(PdfContentByte canvas, Rectangle position,
 			float f, float w) {
 		canvas.setColorFill(Color.lightGray);
 		float x = position.getLeft() + f;
@@ -98,6 +106,11 @@ class PdfPCellEventImpl implements PdfPCellEvent {
 	}
 
 	protected void paintBar(PdfContentByte canvas, Rectangle position) {
+		if (baselineItem != null)
+			paintGhost(canvas, position);
+		if (scheduleItem == null)
+			return;
+
 		float barStart = ganttPrint.getX(scheduleItem.getStart().getTime());
 		float barFinish = ganttPrint.getX(scheduleItem.getFinish().getTime());
 		float barWidth = barFinish - barStart;
@@ -107,11 +120,38 @@ class PdfPCellEventImpl implements PdfPCellEvent {
 		float w = barWidth;
 		float h = position.getHeight() / 3;
 
-		paintBar(canvas, x, w, y, h);
+		paintBar(canvas, x, w, y, h, ganttPrint.isCritical(row));
+
+		if (ganttPrint.connectors != null && row >= 0)
+			ganttPrint.connectors.record(row, x, x + w, y + h / 2);
+	}
+
+	private void paintGhost(PdfContentByte canvas, Rectangle position) {
+		float barStart = ganttPrint.getX(baselineItem.getStart().getTime());
+		float barFinish = ganttPrint.getX(baselineItem.getFinish().getTime());
+
+		float x = position.getLeft() + barStart;
+		float y = position.getBottom() + position.getHeight() / 3 - 2;
+		float w = Math.max(barFinish - barStart, MIN_BAR_WIDTH);
+		float h = position.getHeight() / 3 + 4;
+
+		canvas.saveState();
+		canvas.setLineWidth(0.5f);
+		canvas.setLineDash(1.5f, 1.5f);
+		canvas.setColorStroke(Color.gray);
+		canvas.setColorFill(Color.decode("0xeeeeee"));
+		canvas.roundRectangle(x, y, w, h, 1);
+		canvas.fillStroke();
+		canvas.restoreState();
 	}
 
 	private void paintBar(PdfContentByte canvas, float x, float w, float y,
-			float h) {
+			float h, boolean critical) {
+
+		if (w < MIN_BAR_WIDTH) {
+			paintMarker(canvas, x + w / 2 - MIN_BAR_WIDTH / 2, y, h, critical);
+			return;
+		}
 
 		/* shadow */
 		canvas.setLineWidth(0.5f);
@@ -122,10 +162,22 @@ class PdfPCellEventImpl implements PdfPCellEvent {
 
 		/* bar */
 		canvas.setLineWidth(0.5f);
-		canvas.setColorStroke(Color.blue);
-		canvas.setColorFill(Color.decode("0xaaaaff"));
+		if (critical) {
+			canvas.setColorStroke(Color.red);
+			canvas.setColorFill(Color.decode("0xffaaaa"));
+		} else {
+			canvas.setColorStroke(Color.blue);
+			canvas.setColorFill(Color.decode("0xaaaaff"));
+		}
 		canvas.roundRectangle(x, y, w, h, 1);
 		canvas.fillStroke();
 	}
 
+	private void paintMarker(PdfContentByte canvas, float x, float y,
+			float h, boolean critical) {
+		canvas.setColorFill(critical ? Color.red : Color.blue);
+		canvas.rectangle(x, y, MIN_BAR_WIDTH, h);
+		canvas.fill();
+	}
+
 }
@@ -41,6 +41,8 @@ class PdfPageEventImpl implements PdfPageEvent {
 
 	@Override
 	public void onEndPage(PdfWriter writer, Document document) {
+		if (ganttPrint.connectors != null)
+			ganttPrint.connectors.paintPage(writer.getDirectContent());
 	}
 
 	@Override
@@ -0,0 +1,126 @@
+package com.mincom.viva.ganttprint;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeConstants;
+import org.joda.time.Days;
+import org.joda.time.LocalDate;
+
+import com.mincom.viva.ganttprint.GanttPrint.SCALE_LEVEL;
+
+/**
+ * Scale ticks and non-working day shading, laid out once per print and
+ * painted by every bar cell. Boundaries are visited directly (day, week or
+ * month at a time), non-working days from the {@link WorkCalendar} are merged
+ * into contiguous spans, and anything that would be narrower than is visible
+ * at the current points-per-day is dropped, so the work per row is bounded by
+ * what is actually drawn.
+ */
+class ScaleLayout {
+
+	private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory
+			.getLogger(ScaleLayout.class);
+
+	/* level of detail thresholds, in points */
+	static final float MIN_TICK_SPACING = 2;
+	static final float MIN_SHADE_WIDTH = 1;
+
+	/* at a monthly scale only spans longer than a weekend are shaded */
+	static final int MONTHLY_MIN_SHADE_DAYS = 3;
+
+	private static final WorkCalendar DEFAULT_CALENDAR = new WorkCalendar();
+
+	final DateTime[] ticks;
+	final float[] tickX;
+	final float[] shadeX, shadeWidth;
+
+	ScaleLayout(Timeline timeline, WorkCalendar workCalendar) {
+		float pointsPerDay = timeline.getPointsPerDay();
+
+		/* ticks, one boundary at a time */
+		List<DateTime> t = new ArrayList<DateTime>();
+		DateTime d0 = timeline.first.withMillisOfDay(0);
+		switch (timeline.scaleLevel) {
+		case DAILY:
+			break;
+		case WEEKLY:
+			d0 = d0.withDayOfWeek(DateTimeConstants.MONDAY);
+			break;
+		case MONTHLY:
+			d0 = d0.withDayOfMonth(1);
+			break;
+		}
+		float lastX = -MIN_TICK_SPACING;
+		for (; d0.isBefore(timeline.last); d0 = next(timeline.scaleLevel,
+				d0)) {
+			if (d0.isBefore(timeline.first))
+				continue;
+			float x = timeline.getX(d0.getMillis());
+			if (x - lastX < MIN_TICK_SPACING)
+				continue;
+			t.add(d0);
+			lastX = x;
+		}
+		ticks = t.toArray(new DateTime[t.size()]);
+		tickX = new float[ticks.length];
+		for (int i = 0; i < ticks.length; i++)
+			tickX[i] = timeline.getX(ticks[i].getMillis());
+
+		/* non-working days, merged into contiguous spans */
+		if (workCalendar == null)
+			workCalendar = DEFAULT_CALENDAR;
+		LocalDate firstDay = timeline.first.toLocalDate();
+		int days = Days.daysBetween(firstDay,
+				timeline.last.toLocalDate()).getDays() + 1;
+		BitSet nonWorking = workCalendar.compile(firstDay, days);
+		int minDays = timeline.scaleLevel == SCALE_LEVEL.MONTHLY
+				? MONTHLY_MIN_SHADE_DAYS : 1;
+		int n = 0;
+		float[] sx = new float[16], sw = new float[16];
+		for (int i = nonWorking.nextSetBit(0); i >= 0; i = nonWorking
+				.nextSetBit(i)) {
+			int j = nonWorking.nextClearBit(i);
+			if (j - i >= minDays && (j - i) * pointsPerDay >= MIN_SHADE_WIDTH) {
+				float x0 = timeline.getX(firstDay.plusDays(i)
+						.toDateTimeAtStartOfDay(timeline.first.getZone())
+						.getMillis());
+				float x1 = timeline.getX(Math.min(firstDay.plusDays(j)
+						.toDateTimeAtStartOfDay(timeline.first.getZone())
+						.getMillis(), timeline.last.getMillis()));
+				if (n == sx.length) {
+					float[] t0 = new float[n * 2], t1 = new float[n * 2];
+					System.arraycopy(sx, 0, t0, 0, n);
+					System.arraycopy(sw, 0, t1, 0, n);
+					sx = t0;
+					sw = t1;
+				}
+				sx[n] = x0;
+				sw[n] = x1 - x0;
+				n++;
+			}
+			i = j;
+		}
+		shadeX = new float[n];
+		shadeWidth = new float[n];
+		System.arraycopy(sx, 0, shadeX, 0, n);
+		System.arraycopy(sw, 0, shadeWidth, 0, n);
+
+		logger.debug("scale layout has [{}] ticks and [{}] shaded spans",
+				ticks.length, shadeX.length);
+	}
+
+	private static DateTime next(SCALE_LEVEL scaleLevel, DateTime dt) {
+		switch (scaleLevel) {
+		case WEEKLY:
+			return dt.plusWeeks(1);
+		case MONTHLY:
+			return dt.plusMonths(1);
+		default:
+			return dt.plusDays(1);
+		}
+	}
+
+}
@@ -3,10 +3,25 @@ package com.mincom.viva.ganttprint;
 import java.util.ArrayList;
 
 /**
- * Container for {@link ScheduleItem} objects.
+ * Container for {@link ScheduleItem} objects, optionally with the
+ * {@link WorkCalendar} of the site they belong to.
  */
 public class Schedule extends ArrayList<ScheduleItem> {
 
 	private static final long serialVersionUID = 0L;
 
+	private WorkCalendar workCalendar = null;
+
+	/**
+	 * @return the work calendar, or null for a plain saturday and sunday
+	 *         weekend
+	 */
+	public WorkCalendar getWorkCalendar() {
+		return workCalendar;
+	}
+
+	public void setWorkCalendar(WorkCalendar workCalendar) {
+		this.workCalendar = workCalendar;
+	}
+
 }
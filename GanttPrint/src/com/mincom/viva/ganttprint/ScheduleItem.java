@@ -8,6 +8,11 @@ public class ScheduleItem {
 
 	private Date start = new Date(0), finish = new Date(0);
 
+	/* finish-to-start predecessor links, grown on demand */
+	private ScheduleItem[] predecessors = null;
+	private long[] predecessorLags = null;
+	private int predecessorCount = 0;
+
 	public String getWorkOrder() {
 		return workOrder;
 	}
@@ -48,4 +53,51 @@ public class ScheduleItem {
 		this.finish = finish;
 	}
 
+	/**
+	 * Adds a finish-to-start predecessor link with no lag.
+	 */
+	public void addPredecessor(ScheduleItem predecessor) {
+		addPredecessor(predecessor, 0);
+	}
+
+	/**
+	 * Adds a finish-to-start predecessor link; this item may not start until
+	 * <code>lag</code> milliseconds after the predecessor finishes.
+	 */
+	public void addPredecessor(ScheduleItem predecessor, long lag) {
+		if (predecessor == null)
+			throw new IllegalArgumentException("require non-null predecessor");
+		if (predecessors == null) {
+			predecessors = new ScheduleItem[2];
+			predecessorLags = new long[2];
+		} else if (predecessorCount == predecessors.length) {
+			int capacity = predecessorCount * 2;
+			ScheduleItem[] p = new ScheduleItem[capacity];
+			System.arraycopy(predecessors, 0, p, 0, predecessorCount);
+			predecessors = p;
+			long[] l = new long[capacity];
+			System.arraycopy(predecessorLags, 0, l, 0, predecessorCount);
+			predecessorLags = l;
+		}
+		predecessors[predecessorCount] = predecessor;
+		predecessorLags[predecessorCount] = lag;
+		predecessorCount++;
+	}
+
+	public int getPredecessorCount() {
+		return predecessorCount;
+	}
+
+	public ScheduleItem getPredecessor(int i) {
+		if (i < 0 || i >= predecessorCount)
+			throw new IndexOutOfBoundsException("predecessor " + i);
+		return predecessors[i];
+	}
+
+	public long getPredecessorLag(int i) {
+		if (i < 0 || i >= predecessorCount)
+			throw new IndexOutOfBoundsException("predecessor " + i);
+		return predecessorLags[i];
+	}
+
 }
@@ -0,0 +1,264 @@
+package com.mincom.viva.ganttprint;
+
+import java.util.BitSet;
+
+/**
+ * Rows of a baseline-versus-current comparison, matching {@link ScheduleItem}s
+ * on work order and task number.
+ * <p>
+ * When both schedules are sorted by key they are matched with a streaming
+ * merge-join: the constructor merges once to count the added and removed
+ * items and {@link #forEachRow(RowCallback)} merges again, handing each row
+ * to the callback as it is produced, so no row is held. Otherwise the
+ * baseline is indexed in an open-addressing table keyed by a 64-bit hash of
+ * the key (collisions are resolved by comparing the strings) and probed with
+ * the current schedule; the table is dropped once the constructor returns,
+ * but the baseline match of every current item, and the removed baseline
+ * items, are kept until the rows are visited. Only sorted inputs therefore
+ * keep memory proportional to the unmatched items; unsorted inputs keep one
+ * int per current item. Duplicate keys are paired off in order.
+ * {@link GanttPrint} writes out its table as the rows arrive, so neither holds
+ * every row of the print.
+ * <p>
+ * The schedules must not be modified while the overlay is in use. Before
+ * visiting the rows, a change in the size of either schedule is detected and,
+ * for sorted schedules, so is a change in order or in the number of rows;
+ * other changes, such as replacing an item with one of another key, go
+ * undetected and pair the rows wrongly.
+ */
+public class ScheduleOverlay {
+
+	private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory
+			.getLogger(ScheduleOverlay.class);
+
+	/**
+	 * Receives the rows of an overlay in print order.
+	 */
+	public interface RowCallback {
+
+		/**
+		 * @param baselineIndex
+		 *            index into the baseline schedule, or -1 if the row was
+		 *            added
+		 * @param currentIndex
+		 *            index into the current schedule, or -1 if the row was
+		 *            removed
+		 */
+		void processRow(int baselineIndex, int currentIndex);
+	}
+
+	private final Schedule baseline, current;
+	private final int baselineSize, currentSize;
+	private final boolean sorted;
+	private int matched = 0, added = 0, removed = 0;
+
+	/* only for unsorted schedules: the baseline index of each current item, or -1 */
+	private int[] matches;
+	/* only for unsorted schedules: the unmatched baseline indexes, in order */
+	private int[] removedIndexes;
+
+	public ScheduleOverlay(Schedule baseline, Schedule current) {
+		if (baseline == null || current == null)
+			throw new IllegalArgumentException("require non-null models");
+		this.baseline = baseline;
+		this.current = current;
+		this.baselineSize = baseline.size();
+		this.currentSize = current.size();
+		this.sorted = isSorted(baseline) && isSorted(current);
+		if (sorted) {
+			logger.debug("merge-joining sorted schedules");
+			mergeJoin(null);
+		} else {
+			logger.debug("hash-joining unsorted schedules");
+			hashJoin();
+		}
+		logger.debug("overlay has [{}] rows, [{}] added and [{}] removed",
+				new Object[] { size(), added, removed });
+	}
+
+	/**
+	 * Hands every row to <code>callback</code>: in key order for sorted
+	 * schedules, otherwise in current schedule order followed by the removed
+	 * baseline items.
+	 *
+	 * @throws IllegalStateException
+	 *             if the schedules are found to have been modified since the
+	 *             overlay was built
+	 */
+	public void forEachRow(RowCallback callback) {
+		if (baseline.size() != baselineSize || current.size() != currentSize)
+			throw new IllegalStateException(
+					"schedules resized since the overlay was built");
+		if (sorted) {
+			if (!isSorted(baseline) || !isSorted(current))
+				throw new IllegalStateException(
+						"schedules reordered since the overlay was built");
+			if (mergeJoin(callback) != size())
+				throw new IllegalStateException(
+						"schedules modified since the overlay was built");
+			return;
+		}
+		for (int c = 0; c < matches.length; c++)
+			callback.processRow(matches[c], c);
+		for (int b : removedIndexes)
+			callback.processRow(b, -1);
+	}
+
+	/**
+	 * Counts the rows when <code>callback</code> is null, otherwise hands
+	 * them to it.
+	 *
+	 * @return the number of rows
+	 */
+	private int mergeJoin(RowCallback callback) {
+		int rows = 0, b = 0, c = 0;
+		while (b < baseline.size() && c < current.size()) {
+			int cmp = compare(baseline.get(b), current.get(c));
+			if (cmp == 0)
+				row(callback, b++, c++);
+			else if (cmp < 0)
+				row(callback, b++, -1);
+			else
+				row(callback, -1, c++);
+			rows++;
+		}
+		for (; b < baseline.size(); rows++)
+			row(callback, b++, -1);
+		for (; c < current.size(); rows++)
+			row(callback, -1, c++);
+		return rows;
+	}
+
+	private void row(RowCallback callback, int b, int c) {
+		if (callback != null)
+			callback.processRow(b, c);
+		else
+			count(b, c);
+	}
+
+	private void count(int b, int c) {
+		if (b < 0)
+			added++;
+		else if (c < 0)
+			removed++;
+		else
+			matched++;
+	}
+
+	private void hashJoin() {
+		int n = baseline.size();
+		int capacity = Integer.highestOneBit(Math.max(2, n) * 2 - 1) << 1;
+		int mask = capacity - 1;
+		long[] hashes = new long[capacity];
+		/* baseline index + 1 of the first item with the slot's key, 0 if empty */
+		int[] keys = new int[capacity];
+		/* next unmatched baseline index with the slot's key, -1 if none */
+		int[] cursors = new int[capacity];
+		int[] tails = new int[capacity];
+		/* later baseline indexes with the same key, -1 terminated */
+		int[] next = new int[n];
+		for (int b = 0; b < n; b++) {
+			ScheduleItem si = baseline.get(b);
+			long h = hash(si);
+			int slot = find(hashes, keys, mask, h, si);
+			next[b] = -1;
+			if (keys[slot] == 0) {
+				hashes[slot] = h;
+				keys[slot] = b + 1;
+				cursors[slot] = b;
+			} else {
+				next[tails[slot]] = b;
+			}
+			tails[slot] = b;
+		}
+
+		BitSet matchedBaseline = new BitSet(n);
+		matches = new int[current.size()];
+		for (int c = 0; c < current.size(); c++) {
+			ScheduleItem si = current.get(c);
+			int slot = find(hashes, keys, mask, hash(si), si);
+			int b = -1;
+			if (keys[slot] != 0 && cursors[slot] >= 0) {
+				b = cursors[slot];
+				cursors[slot] = next[b];
+				matchedBaseline.set(b);
+			}
+			matches[c] = b;
+			count(b, c);
+		}
+		removedIndexes = new int[n - matchedBaseline.cardinality()];
+		int r = 0;
+		for (int b = matchedBaseline.nextClearBit(0); b < n; b = matchedBaseline
+				.nextClearBit(b + 1)) {
+			removedIndexes[r++] = b;
+			count(b, -1);
+		}
+	}
+
+	/**
+	 * @return the slot holding the key of <code>si</code>, or the empty slot
+	 *         where it would go
+	 */
+	private int find(long[] hashes, int[] keys, int mask, long h,
+			ScheduleItem si) {
+		long m = (h ^ (h >>> 33)) * 0xff51afd7ed558ccdL;
+		int slot = (int) (m ^ (m >>> 33)) & mask;
+		while (keys[slot] != 0) {
+			if (hashes[slot] == h
+					&& compare(baseline.get(keys[slot] - 1), si) == 0)
+				return slot;
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private static boolean isSorted(Schedule s) {
+		for (int i = 1; i < s.size(); i++)
+			if (compare(s.get(i - 1), s.get(i)) > 0)
+				return false;
+		return true;
+	}
+
+	private static int compare(ScheduleItem a, ScheduleItem b) {
+		int cmp = compare(a.getWorkOrder(), b.getWorkOrder());
+		return cmp != 0 ? cmp : compare(a.getTaskNo(), b.getTaskNo());
+	}
+
+	private static int compare(String a, String b) {
+		if (a == null)
+			return b == null ? 0 : -1;
+		return b == null ? 1 : a.compareTo(b);
+	}
+
+	private static long hash(ScheduleItem si) {
+		long h = 0xcbf29ce484222325L;
+		h = hash(h, si.getWorkOrder());
+		h = hash(h, si.getTaskNo());
+		return h;
+	}
+
+	/* FNV-1a over the chars, with a separator so that ("1", "23") != ("12", "3") */
+	private static long hash(long h, String s) {
+		if (s != null)
+			for (int i = 0; i < s.length(); i++)
+				h = (h ^ s.charAt(i)) * 0x100000001b3L;
+		return (h ^ 0xffff) * 0x100000001b3L;
+	}
+
+	public int size() {
+		return matched + added + removed;
+	}
+
+	public int getAddedCount() {
+		return added;
+	}
+
+	public int getRemovedCount() {
+		return removed;
+	}
+
+	public Schedule getBaseline() {
+		return baseline;
+	}
+
+}
@@ -0,0 +1,114 @@
+package com.mincom.viva.ganttprint;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeConstants;
+import org.joda.time.Duration;
+import org.joda.time.Interval;
+
+import com.mincom.viva.ganttprint.GanttPrint.SCALE_LEVEL;
+
+/**
+ * Horizontal geometry of the bar column: the padded date range, the scale
+ * level and the mapping from instants to points. Shared by {@link GanttPrint}
+ * and {@link GanttPreview} so both lay bars out identically.
+ */
+class Timeline {
+
+	private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory
+			.getLogger(Timeline.class);
+
+	final DateTime first, last;
+	final long range;
+	final float barWidth;
+	final SCALE_LEVEL scaleLevel;
+	final ScaleLayout scaleLayout;
+
+	/**
+	 * Uses a date range supplied by the caller, skipping the pass over the
+	 * schedule.
+	 */
+	Timeline(DateTime first, DateTime last, float barWidth,
+			WorkCalendar workCalendar) {
+		logger.debug("first: {}", first);
+		logger.debug("last: {}", last);
+		if (first.isAfter(last))
+			throw new IllegalStateException("first start date [" + first
+					+ "] is after last finish date [" + last + "]");
+		this.barWidth = barWidth;
+
+		DateTime f = first;
+		DateTime l = last;
+
+		/* pad out to week boundaries */
+		f = f.withMillisOfDay(0).withDayOfWeek(1);
+		l = l.withMillisOfDay(0).withDayOfWeek(1).plusWeeks(1).minusSeconds(1);
+
+		/* if close to week boundaries pad out by another week */
+		if (new Interval(f.getMillis(), first.getMillis()).toDuration()
+				.isShorterThan(Duration.standardDays(2))) {
+			f = f.minusWeeks(1);
+		}
+		if (new Interval(last.getMillis(), l.getMillis()).toDuration()
+				.isShorterThan(Duration.standardDays(2))) {
+			l = l.plusWeeks(1);
+		}
+
+		/* set state */
+		this.first = f;
+		this.last = l;
+		this.range = l.getMillis() - f.getMillis();
+		this.scaleLevel = establishScaleLevel(range);
+		this.scaleLayout = new ScaleLayout(this, workCalendar);
+	}
+
+	/**
+	 * Establishes the date range from every item of the schedule.
+	 */
+	static Timeline forSchedule(Schedule schedule, float barWidth) {
+		return forSchedules(barWidth, schedule.getWorkCalendar(), schedule);
+	}
+
+	/**
+	 * Establishes the date range from every item of all the schedules.
+	 */
+	static Timeline forSchedules(float barWidth, WorkCalendar workCalendar,
+			Schedule... schedules) {
+		DateTime first = null, last = null;
+		for (Schedule schedule : schedules) {
+			for (ScheduleItem si : schedule) {
+				DateTime start = new DateTime(si.getStart());
+				if (first == null || start.isBefore(first))
+					first = start;
+				DateTime finish = new DateTime(si.getFinish());
+				if (last == null || finish.isAfter(last))
+					last = finish;
+			}
+		}
+		return new Timeline(first, last, barWidth, workCalendar);
+	}
+
+	private static SCALE_LEVEL establishScaleLevel(long range) {
+		Duration d = new Duration(range);
+		if (d.isLongerThan(Duration.standardDays(365))) {
+			return SCALE_LEVEL.MONTHLY;
+		} else if (d.isLongerThan(Duration.standardDays(30))) {
+			return SCALE_LEVEL.WEEKLY;
+		} else {
+			return SCALE_LEVEL.DAILY;
+		}
+	}
+
+	float getX(long instant) {
+		float x = (instant - first.getMillis()) * getScalingFactor();
+		return x;
+	}
+
+	private float getScalingFactor() {
+		return barWidth == 0 ? 1 : (barWidth / range);
+	}
+
+	float getPointsPerDay() {
+		return getScalingFactor() * DateTimeConstants.MILLIS_PER_DAY;
+	}
+
+}
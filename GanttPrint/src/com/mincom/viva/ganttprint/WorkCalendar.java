@@ -0,0 +1,269 @@
+package com.mincom.viva.ganttprint;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Locale;
+
+import org.joda.time.DateTimeConstants;
+import org.joda.time.Days;
+import org.joda.time.LocalDate;
+import org.joda.time.format.DateTimeFormat;
+import org.joda.time.format.DateTimeFormatter;
+
+/**
+ * Working calendar of a site: the non-working days of the week (or a
+ * repeating shift pattern), plus holidays, shutdowns and worked exceptions.
+ * <p>
+ * Calendars can be read from a simple line based file, e.g.
+ *
+ * <pre>
+ * # comments and blank lines are ignored
+ * name     Site A
+ * weekend  SAT SUN
+ * pattern  2010-01-04 WWWWNNN
+ * holiday  2010-12-25
+ * shutdown 2010-06-01 2010-06-14
+ * work     2010-12-27
+ * </pre>
+ *
+ * where a <code>pattern</code> of working (W) and non-working (N) days
+ * repeats from its anchor date and replaces the <code>weekend</code>.
+ * Calendars obtained from {@link #parse(Reader)} or {@link #load(File)} are
+ * read-only, since loaded calendars are shared between prints; their setters
+ * throw {@link IllegalStateException}.
+ */
+public class WorkCalendar implements Serializable {
+
+	private static final long serialVersionUID = 0L;
+
+	private static final DateTimeFormatter DATE_FORMAT = DateTimeFormat
+			.forPattern("yyyy-MM-dd");
+
+	private static final String[] DAY_NAMES = { null, "MON", "TUE", "WED",
+			"THU", "FRI", "SAT", "SUN" };
+
+	/* calendars loaded from file, most recently used last */
+	private static final WorkCalendarCache CACHE = new WorkCalendarCache(32);
+
+	private String name;
+
+	/* indexed by joda day of week, 1 (monday) to 7 (sunday) */
+	private final boolean[] nonWorkingDays = new boolean[8];
+	{
+		nonWorkingDays[DateTimeConstants.SATURDAY] = true;
+		nonWorkingDays[DateTimeConstants.SUNDAY] = true;
+	}
+
+	private LocalDate patternAnchor = null;
+	private boolean[] pattern = null;
+
+	/* inclusive date ranges, applied in order: non-working, then working */
+	private final List<LocalDate[]> nonWorking = new ArrayList<LocalDate[]>();
+	private final List<LocalDate[]> working = new ArrayList<LocalDate[]>();
+
+	private boolean readOnly = false;
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		checkModifiable();
+		this.name = name;
+	}
+
+	/**
+	 * @param daysOfWeek
+	 *            joda days of week, e.g. {@link DateTimeConstants#SATURDAY}
+	 */
+	public void setNonWorkingDays(int... daysOfWeek) {
+		checkModifiable();
+		for (int i = 1; i < nonWorkingDays.length; i++)
+			nonWorkingDays[i] = false;
+		for (int d : daysOfWeek) {
+			if (d < DateTimeConstants.MONDAY || d > DateTimeConstants.SUNDAY)
+				throw new IllegalArgumentException("invalid day of week [" + d
+						+ "]");
+			nonWorkingDays[d] = true;
+		}
+	}
+
+	/**
+	 * @param pattern
+	 *            working (W) and non-working (N) days, repeating from
+	 *            <code>anchor</code>
+	 */
+	public void setShiftPattern(LocalDate anchor, String pattern) {
+		checkModifiable();
+		if (anchor == null || pattern == null || pattern.length() == 0)
+			throw new IllegalArgumentException("require anchor and pattern");
+		boolean[] p = new boolean[pattern.length()];
+		for (int i = 0; i < p.length; i++) {
+			char c = Character.toUpperCase(pattern.charAt(i));
+			if (c != 'W' && c != 'N')
+				throw new IllegalArgumentException("invalid shift pattern ["
+						+ pattern + "]");
+			p[i] = c == 'N';
+		}
+		this.patternAnchor = anchor;
+		this.pattern = p;
+	}
+
+	public void addNonWorking(LocalDate from, LocalDate to) {
+		checkModifiable();
+		nonWorking.add(range(from, to));
+	}
+
+	public void addWorking(LocalDate from, LocalDate to) {
+		checkModifiable();
+		working.add(range(from, to));
+	}
+
+	public boolean isReadOnly() {
+		return readOnly;
+	}
+
+	private void checkModifiable() {
+		if (readOnly)
+			throw new IllegalStateException("work calendar [" + name
+					+ "] is read-only");
+	}
+
+	private static LocalDate[] range(LocalDate from, LocalDate to) {
+		if (from == null || to == null)
+			throw new IllegalArgumentException("require non-null dates");
+		if (from.isAfter(to))
+			throw new IllegalArgumentException("from [" + from
+					+ "] is after to [" + to + "]");
+		return new LocalDate[] { from, to };
+	}
+
+	public boolean isWorking(LocalDate date) {
+		return !compile(date, 1).get(0);
+	}
+
+	/**
+	 * Compiles the calendar over <code>days</code> days starting at
+	 * <code>first</code>.
+	 *
+	 * @return a bit set in which bit <i>i</i> is set when
+	 *         <code>first + i</code> is a non-working day
+	 */
+	public BitSet compile(LocalDate first, int days) {
+		BitSet bs = new BitSet(days);
+		if (pattern != null) {
+			int p = Days.daysBetween(patternAnchor, first).getDays()
+					% pattern.length;
+			if (p < 0)
+				p += pattern.length;
+			for (int i = 0; i < days; i++) {
+				if (pattern[p])
+					bs.set(i);
+				if (++p == pattern.length)
+					p = 0;
+			}
+		} else {
+			int dow = first.getDayOfWeek();
+			for (int i = 0; i < days; i++) {
+				if (nonWorkingDays[dow])
+					bs.set(i);
+				if (++dow > DateTimeConstants.SUNDAY)
+					dow = DateTimeConstants.MONDAY;
+			}
+		}
+		for (LocalDate[] r : nonWorking)
+			apply(bs, first, days, r, true);
+		for (LocalDate[] r : working)
+			apply(bs, first, days, r, false);
+		return bs;
+	}
+
+	private static void apply(BitSet bs, LocalDate first, int days,
+			LocalDate[] r, boolean value) {
+		int from = Math.max(0, Days.daysBetween(first, r[0]).getDays());
+		int to = Math.min(days, Days.daysBetween(first, r[1]).getDays() + 1);
+		if (from < to)
+			bs.set(from, to, value);
+	}
+
+	/**
+	 * Loads a calendar through a process-wide LRU cache, re-reading the file
+	 * only when it has been modified.
+	 */
+	public static WorkCalendar load(File file) throws IOException {
+		return CACHE.get(file);
+	}
+
+	/**
+	 * Parses a calendar; see the class comment for the format.
+	 */
+	public static WorkCalendar parse(Reader reader) throws IOException {
+		WorkCalendar wc = new WorkCalendar();
+		BufferedReader br = new BufferedReader(reader);
+		String line;
+		int lineNo = 0;
+		while ((line = br.readLine()) != null) {
+			lineNo++;
+			line = line.trim();
+			if (line.length() == 0 || line.startsWith("#"))
+				continue;
+			String[] tokens = line.split("\\s+");
+			String keyword = tokens[0].toLowerCase(Locale.ENGLISH);
+			try {
+				if (keyword.equals("name")) {
+					wc.setName(line.substring(tokens[0].length()).trim());
+				} else if (keyword.equals("weekend")) {
+					int[] days = new int[tokens.length - 1];
+					for (int i = 1; i < tokens.length; i++)
+						days[i - 1] = parseDayOfWeek(tokens[i]);
+					wc.setNonWorkingDays(days);
+				} else if (keyword.equals("pattern")) {
+					expect(tokens, 3);
+					wc.setShiftPattern(parseDate(tokens[1]), tokens[2]);
+				} else if (keyword.equals("holiday")
+						|| keyword.equals("shutdown")) {
+					LocalDate from = parseDate(tokens[1]);
+					wc.addNonWorking(from, tokens.length > 2 ? parseDate(tokens[2])
+							: from);
+				} else if (keyword.equals("work")) {
+					LocalDate from = parseDate(tokens[1]);
+					wc.addWorking(from, tokens.length > 2 ? parseDate(tokens[2])
+							: from);
+				} else {
+					throw new IllegalArgumentException("unknown keyword ["
+							+ tokens[0] + "]");
+				}
+			} catch (RuntimeException e) {
+				throw new IOException("invalid work calendar at line "
+						+ lineNo + ": " + line, e);
+			}
+		}
+		wc.readOnly = true;
+		return wc;
+	}
+
+	private static void expect(String[] tokens, int n) {
+		if (tokens.length != n)
+			throw new IllegalArgumentException("expected " + (n - 1)
+					+ " arguments");
+	}
+
+	private static LocalDate parseDate(String s) {
+		return DATE_FORMAT.parseLocalDate(s);
+	}
+
+	private static int parseDayOfWeek(String s) {
+		String u = s.toUpperCase(Locale.ENGLISH);
+		for (int d = DateTimeConstants.MONDAY; d <= DateTimeConstants.SUNDAY; d++)
+			if (u.startsWith(DAY_NAMES[d]))
+				return d;
+		throw new IllegalArgumentException("invalid day of week [" + s + "]");
+	}
+
+}
@@ -0,0 +1,68 @@
+package com.mincom.viva.ganttprint;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded LRU cache of parsed {@link WorkCalendar} files, keyed by canonical
+ * path and invalidated when the file's modification time changes.
+ */
+class WorkCalendarCache {
+
+	private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory
+			.getLogger(WorkCalendarCache.class);
+
+	private static class CachedCalendar {
+		final long lastModified;
+		final WorkCalendar calendar;
+
+		CachedCalendar(long lastModified, WorkCalendar calendar) {
+			this.lastModified = lastModified;
+			this.calendar = calendar;
+		}
+	}
+
+	private final Map<String, CachedCalendar> entries;
+
+	WorkCalendarCache(final int capacity) {
+		entries = new LinkedHashMap<String, CachedCalendar>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 0L;
+
+			@Override
+			protected boolean removeEldestEntry(
+					Map.Entry<String, CachedCalendar> eldest) {
+				return size() > capacity;
+			}
+		};
+	}
+
+	WorkCalendar get(File file) throws IOException {
+		String key = file.getCanonicalPath();
+		long lastModified = file.lastModified();
+		synchronized (entries) {
+			CachedCalendar e = entries.get(key);
+			if (e != null && e.lastModified == lastModified)
+				return e.calendar;
+		}
+		/* parse outside the lock; a concurrent load of the same file is harmless */
+		logger.debug("loading work calendar from [{}]", key);
+		WorkCalendar calendar;
+		Reader reader = new InputStreamReader(new FileInputStream(file), "UTF-8");
+		try {
+			calendar = WorkCalendar.parse(reader);
+		} finally {
+			reader.close();
+		}
+		synchronized (entries) {
+			entries.put(key, new CachedCalendar(lastModified, calendar));
+		}
+		return calendar;
+	}
+
+}
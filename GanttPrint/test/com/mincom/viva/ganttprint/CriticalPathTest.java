@@ -0,0 +1,93 @@
+package com.mincom.viva.ganttprint;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.joda.time.DateTime;
+
+public class CriticalPathTest extends TestCase {
+
+	private static final long DAY = 24 * 60 * 60 * 1000L;
+
+	private final DateTime origin = new DateTime(2010, 1, 4, 0, 0, 0, 0);
+
+	private ScheduleItem newScheduleItem(int startDay, int days) {
+		return ScheduleItems.newScheduleItem(origin.plusDays(startDay), days);
+	}
+
+	public void testChain() {
+		Schedule s = new Schedule();
+		ScheduleItem a = newScheduleItem(0, 2);
+		ScheduleItem b = newScheduleItem(0, 3);
+		ScheduleItem c = newScheduleItem(0, 1);
+		ScheduleItem d = newScheduleItem(0, 1);
+		b.addPredecessor(a);
+		c.addPredecessor(a, DAY);
+		d.addPredecessor(b);
+		d.addPredecessor(c);
+		s.add(d);
+		s.add(c);
+		s.add(b);
+		s.add(a);
+		CriticalPath cp = new CriticalPath(s);
+		assertEquals(4, cp.getLinkCount());
+		assertEquals(origin.plusDays(6).getMillis(), cp.getFinish());
+		assertTrue(cp.isCritical(0));
+		assertTrue(cp.isCritical(2));
+		assertTrue(cp.isCritical(3));
+		assertFalse(cp.isCritical(1));
+		assertEquals(DAY, cp.getSlack(1));
+		assertEquals(origin.plusDays(3).getMillis(), cp.getEarlyStart(1));
+	}
+
+	public void testCycle() {
+		Schedule s = new Schedule();
+		ScheduleItem a = newScheduleItem(0, 1);
+		ScheduleItem b = newScheduleItem(1, 1);
+		ScheduleItem c = newScheduleItem(2, 1);
+		b.addPredecessor(a);
+		c.addPredecessor(b);
+		a.addPredecessor(c);
+		s.add(a);
+		s.add(b);
+		s.add(c);
+		try {
+			new CriticalPath(s);
+			fail("expected cycle to be detected");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+	}
+
+	public void testLarge() {
+		int n = 100000;
+		Random random = new Random(0);
+		Schedule s = new Schedule();
+		for (int i = 0; i < n; i++) {
+			ScheduleItem si = newScheduleItem(random.nextInt(365),
+					1 + random.nextInt(5));
+			/* links only point backwards, so there is no cycle */
+			if (i > 0)
+				for (int j = 0; j < 3; j++)
+					si.addPredecessor(s.get(random.nextInt(i)),
+							random.nextInt(2) * DAY);
+			s.add(si);
+		}
+		/* warm up, then best of five so a stray GC pause does not fail it */
+		for (int i = 0; i < 3; i++)
+			new CriticalPath(s);
+		long elapsed = Long.MAX_VALUE;
+		CriticalPath cp = null;
+		for (int i = 0; i < 5; i++) {
+			long t0 = System.nanoTime();
+			cp = new CriticalPath(s);
+			elapsed = Math.min(elapsed, (System.nanoTime() - t0) / 1000000);
+		}
+		System.out.println("critical path over " + n + " items: " + elapsed
+				+ "ms");
+		assertEquals(3 * (n - 1), cp.getLinkCount());
+		assertTrue("took " + elapsed + "ms", elapsed < 250);
+	}
+
+}
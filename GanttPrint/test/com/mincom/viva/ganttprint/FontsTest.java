@@ -0,0 +1,129 @@
+package com.mincom.viva.ganttprint;
+
+import java.io.File;
+import java.io.UnsupportedEncodingException;
+import java.util.regex.Pattern;
+
+import junit.framework.TestCase;
+
+import org.joda.time.DateTime;
+
+import com.lowagie.text.Font;
+
+public class FontsTest extends TestCase {
+
+	/* "repair" */
+	private static final String CYRILLIC = "\u0440\u0435\u043c\u043e\u043d\u0442";
+
+	/* TrueType fonts with Cyrillic glyphs, tried in order */
+	private static final File[] FONTS = {
+			new File(System.getProperty("java.home"),
+					"lib/fonts/LucidaSansRegular.ttf"),
+			new File("/usr/share/fonts/truetype/dejavu/DejaVuSans.ttf"),
+			new File(System.getenv("WINDIR"), "Fonts/arial.ttf") };
+
+	@Override
+	protected void tearDown() throws Exception {
+		GanttPrint.setUnicodeFont(System
+				.getProperty(Fonts.UNICODE_FONT_PROPERTY));
+		super.tearDown();
+	}
+
+	/**
+	 * @return a TrueType font with Cyrillic glyphs, or null, skipping the
+	 *         test, when there is none
+	 */
+	private String findFont() {
+		String path = System.getProperty(Fonts.UNICODE_FONT_PROPERTY);
+		if (path != null)
+			return path;
+		for (File file : FONTS)
+			if (file.isFile())
+				return file.getPath();
+		System.out.println("skipping " + getName()
+				+ ": no TrueType font with Cyrillic glyphs found, set "
+				+ Fonts.UNICODE_FONT_PROPERTY);
+		return null;
+	}
+
+	private Schedule newSchedule(int n, String description) {
+		Schedule s = new Schedule();
+		for (int i = 0; i < n; i++) {
+			ScheduleItem si = ScheduleItems.newScheduleItem(new DateTime()
+					.plusDays(i % 60), 4);
+			si.setDescription(description + " " + i);
+			s.add(si);
+		}
+		return s;
+	}
+
+	/**
+	 * @return the best of five print times in milliseconds, after warming up
+	 */
+	private long timePrint(Schedule s) {
+		for (int i = 0; i < 3; i++)
+			new GanttPrint(s, GanttPrint.SIZE.A3);
+		long elapsed = Long.MAX_VALUE;
+		for (int i = 0; i < 5; i++) {
+			long t0 = System.nanoTime();
+			new GanttPrint(s, GanttPrint.SIZE.A3).getBytes();
+			elapsed = Math.min(elapsed, (System.nanoTime() - t0) / 1000000);
+		}
+		return elapsed;
+	}
+
+	public void testWinAnsi() {
+		assertTrue(Fonts.isWinAnsi(null));
+		assertTrue(Fonts.isWinAnsi("work order description"));
+		assertTrue(Fonts.isWinAnsi("caf\u00e9 \u20ac5 \u2013 na\u00efve"));
+		assertFalse(Fonts.isWinAnsi(CYRILLIC));
+		assertFalse(Fonts.isWinAnsi("\u4fdd\u517b"));
+	}
+
+	public void testBuiltInKeptForWinAnsi() {
+		assertSame(GanttPrint.DATA_FONT, Fonts.getFont("12345678",
+				GanttPrint.DATA_FONT));
+		assertSame(GanttPrint.HEADER_FONT, Fonts.getFont("Work Order",
+				GanttPrint.HEADER_FONT));
+	}
+
+	public void testUnicodeFont() throws UnsupportedEncodingException {
+		String path = findFont();
+		if (path == null)
+			return;
+		GanttPrint.setUnicodeFont(path);
+		Font font = Fonts.getFont(CYRILLIC, GanttPrint.DATA_FONT);
+		assertNotSame(GanttPrint.DATA_FONT.getBaseFont(), font.getBaseFont());
+		assertEquals(GanttPrint.DATA_FONT.getSize(), font.getSize());
+		/* parsed once and shared */
+		assertSame(font.getBaseFont(), Fonts.getFont(CYRILLIC,
+				GanttPrint.DATA_FONT).getBaseFont());
+
+		Schedule s = new Schedule();
+		ScheduleItem si = ScheduleItems.newScheduleItem(new DateTime(), 4);
+		si.setDescription(CYRILLIC);
+		s.add(si);
+		byte[] bs = new GanttPrint(s, GanttPrint.SIZE.A4).getBytes();
+		/* embedded as a subset, whose name has a six letter tag */
+		String pdf = new String(bs, "ISO-8859-1");
+		assertTrue(Pattern.compile("/BaseFont\\s*/[A-Z]{6}\\+").matcher(pdf)
+				.find());
+		/* the whole font would take hundreds of KB, even compressed */
+		assertTrue(bs.length < new File(path).length() / 10);
+	}
+
+	public void testCostComparableToHelvetica() {
+		String path = findFont();
+		if (path == null)
+			return;
+		GanttPrint.setUnicodeFont(path);
+		long helvetica = timePrint(newSchedule(1000, "repair"));
+		long unicode = timePrint(newSchedule(1000, CYRILLIC));
+		System.out.println("print of 1000 items: Helvetica " + helvetica
+				+ "ms, Unicode font " + unicode + "ms");
+		/* the font is parsed once, so only subsetting is added per print */
+		assertTrue("Unicode font took " + unicode + "ms, Helvetica "
+				+ helvetica + "ms", unicode < helvetica * 2);
+	}
+
+}
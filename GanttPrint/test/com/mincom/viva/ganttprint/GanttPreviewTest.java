@@ -0,0 +1,99 @@
+package com.mincom.viva.ganttprint;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Date;
+
+import javax.imageio.ImageIO;
+
+import junit.framework.TestCase;
+
+import org.joda.time.DateTime;
+
+public class GanttPreviewTest extends TestCase {
+
+	private static final int BAR_FILL = 0xaaaaff;
+
+	private void assertions(GanttPreview gp) throws IOException {
+		BufferedImage image = ImageIO.read(new ByteArrayInputStream(gp
+				.getPngBytes()));
+		assertNotNull(image);
+		assertEquals(gp.getImage().getWidth(), image.getWidth());
+		assertEquals(gp.getImage().getHeight(), image.getHeight());
+	}
+
+	private Schedule newSchedule(int n, DateTime origin) {
+		Schedule s = new Schedule();
+		for (int i = 0; i < n; i++)
+			s.add(ScheduleItems.newScheduleItem(origin.plusDays(i % 60), 4));
+		return s;
+	}
+
+	/**
+	 * @return the number of bar coloured pixels left of the bar column
+	 */
+	private int countBarPixelsInData(BufferedImage image) {
+		int barX = GanttPrint.BORDER_PADDING + 1 + (int) GanttPrint.DATA_WIDTH;
+		int count = 0;
+		for (int y = 0; y < image.getHeight(); y++)
+			for (int x = 0; x < barX; x++)
+				if ((image.getRGB(x, y) & 0xffffff) == BAR_FILL)
+					count++;
+		return count;
+	}
+
+	public void testEmpty() throws IOException {
+		GanttPreview gp = new GanttPreview(new Schedule(), GanttPrint.SIZE.A3,
+				1);
+		assertions(gp);
+	}
+
+	public void testFirstPage() throws IOException {
+		GanttPreview gp = new GanttPreview(newSchedule(100, new DateTime()),
+				GanttPrint.SIZE.A3, 1);
+		BufferedImage image = gp.getImage();
+		assertEquals(1191, image.getWidth());
+		assertEquals(842, image.getHeight());
+		assertEquals(0, countBarPixelsInData(image));
+		assertions(gp);
+	}
+
+	/**
+	 * @return the best of ten preview times in microseconds, after warming up,
+	 *         so a stray GC pause does not fail the test
+	 */
+	private long timePreview(Schedule s, Date first, Date last) {
+		for (int i = 0; i < 20; i++)
+			new GanttPreview(s, GanttPrint.SIZE.A4, 1, first, last);
+		long elapsed = Long.MAX_VALUE;
+		for (int i = 0; i < 10; i++) {
+			long t0 = System.nanoTime();
+			new GanttPreview(s, GanttPrint.SIZE.A4, 1, first, last);
+			elapsed = Math.min(elapsed, (System.nanoTime() - t0) / 1000);
+		}
+		return elapsed;
+	}
+
+	public void testSuppliedRange() throws IOException {
+		DateTime origin = new DateTime();
+		Schedule s = newSchedule(100000, origin);
+		Date first = origin.plusDays(40).toDate();
+		Date last = origin.plusDays(50).toDate();
+
+		GanttPreview gp = new GanttPreview(s, GanttPrint.SIZE.A4, 1, first,
+				last);
+		/* bars reaching outside the range are clipped to the bar column */
+		assertEquals(0, countBarPixelsInData(gp.getImage()));
+		assertions(gp);
+
+		/* a supplied range skips the scan of every item for the date range */
+		long scan = timePreview(s, null, null);
+		long elapsed = timePreview(s, first, last);
+		System.out.println("preview of " + s.size() + " items: " + elapsed
+				+ "us, scanning " + scan + "us");
+		assertTrue("took " + elapsed + "us, scanning " + scan + "us",
+				elapsed < scan / 2);
+	}
+
+}
@@ -0,0 +1,391 @@
+package com.mincom.viva.ganttprint;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.commons.dbcp.BasicDataSource;
+import org.springframework.jdbc.core.simple.SimpleJdbcTemplate;
+
+/**
+ * Standalone load/soak harness for {@link GanttPrint}.
+ * <p>
+ * Seeds an in-memory H2 database with a synthetic MSF623 table, then drives
+ * concurrent prints of mixed sizes through {@link Msf623ScheduleLoader} and
+ * {@link GanttPrint} for a fixed duration, reporting p50/p99 latency,
+ * throughput, GC time and the heap in use after collections. It exits
+ * non-zero when
+ * <ul>
+ * <li>the JVM heap is not capped at or below <code>maxHeapMb</code>,</li>
+ * <li>the growth per schedule row in the heap retained by a finished print,
+ * between the smallest and largest size, or p50 or p99 latency exceeds the
+ * stored baseline by more than <code>tolerance</code>, or</li>
+ * <li>there is no baseline to compare with.</li>
+ * </ul>
+ * The table rows are released as they are written, so a finished print
+ * retains only its {@link Schedule} and the PDF itself; a run with
+ * <code>-Xmx256m</code> at the default sizes retained about 0.7KB per row,
+ * 0.6KB of it PDF.
+ * <p>
+ * A run without a baseline, or with <code>record=true</code>, records one and
+ * fails. The baseline is only meaningful on the machine that recorded it.
+ * Settings are system properties prefixed with <code>ganttprint.load.</code>,
+ * e.g.
+ *
+ * <pre>
+ * java -Xmx256m -Dganttprint.load.threads=8 -Dganttprint.load.durationSeconds=300 \
+ *     com.mincom.viva.ganttprint.GanttPrintLoadHarness
+ * </pre>
+ */
+public class GanttPrintLoadHarness {
+
+	private static final String PREFIX = "ganttprint.load.";
+
+	private final int threads = Integer.getInteger(PREFIX + "threads", 4);
+	private final int warmupSeconds = Integer.getInteger(PREFIX
+			+ "warmupSeconds", 10);
+	private final int durationSeconds = Integer.getInteger(PREFIX
+			+ "durationSeconds", 60);
+	private final int[] sizes = parseSizes(System.getProperty(PREFIX + "sizes",
+			"100,1000,5000"));
+	private final long maxHeapMb = Long.getLong(PREFIX + "maxHeapMb", 256);
+	private final double tolerance = Double.parseDouble(System.getProperty(
+			PREFIX + "tolerance", "0.25"));
+	private final File baselineFile = new File(System.getProperty(PREFIX
+			+ "baseline", "test/com/mincom/viva/ganttprint/"
+			+ GanttPrintLoadHarness.class.getSimpleName() + ".properties"));
+	private final boolean record = Boolean.getBoolean(PREFIX + "record");
+
+	private final List<String> failures = new ArrayList<String>();
+
+	private BasicDataSource dataSource;
+	private Msf623ScheduleLoader loader;
+
+	/* largest heap in use after a collection, sampled while driving */
+	private long liveHeap;
+
+	public static void main(String[] args) throws Exception {
+		GanttPrintLoadHarness harness = new GanttPrintLoadHarness();
+		boolean passed = harness.run();
+		System.exit(passed ? 0 : 1);
+	}
+
+	private static int[] parseSizes(String s) {
+		String[] tokens = s.split(",");
+		int[] sizes = new int[tokens.length];
+		for (int i = 0; i < tokens.length; i++)
+			sizes[i] = Integer.parseInt(tokens[i].trim());
+		Arrays.sort(sizes);
+		return sizes;
+	}
+
+	boolean run() throws Exception {
+		long maxHeap = Runtime.getRuntime().maxMemory();
+		System.out.println("max heap: " + maxHeap / (1024 * 1024) + "MB");
+		if (maxHeap > maxHeapMb * 1024 * 1024)
+			failures.add("heap is not capped, run with -Xmx" + maxHeapMb + "m");
+
+		seed(sizes[sizes.length - 1]);
+		try {
+			long heapPerRow = measureHeapGrowth();
+			soak(heapPerRow);
+		} finally {
+			dataSource.close();
+		}
+
+		for (String failure : failures)
+			System.out.println("FAILED: " + failure);
+		if (failures.isEmpty())
+			System.out.println("PASSED");
+		return failures.isEmpty();
+	}
+
+	private void seed(int rows) throws Exception {
+		dataSource = new BasicDataSource();
+		dataSource.setDriverClassName("org.h2.Driver");
+		dataSource.setUrl("jdbc:h2:mem:msf623;MODE=Oracle;DB_CLOSE_DELAY=-1");
+		dataSource.setUsername("sa");
+		dataSource.setPassword("");
+		dataSource.setMaxActive(threads + 1);
+		SimpleJdbcTemplate simpleJdbcTemplate = new SimpleJdbcTemplate(
+				dataSource);
+		simpleJdbcTemplate.getJdbcOperations().execute(
+				"CREATE TABLE MSF623 (WORK_ORDER CHAR(8), WO_TASK_NO CHAR(3),"
+						+ " WO_TASK_DESC VARCHAR(40), PLAN_STR_DATE CHAR(8),"
+						+ " PLAN_STR_TIME CHAR(6), PLAN_FIN_DATE CHAR(8),"
+						+ " PLAN_FIN_TIME CHAR(6))");
+
+		SimpleDateFormat df = new SimpleDateFormat("yyyyMMdd");
+		df.setTimeZone(TimeZone.getTimeZone("GMT"));
+		SimpleDateFormat tf = new SimpleDateFormat("HHmmss");
+		tf.setTimeZone(TimeZone.getTimeZone("GMT"));
+		Random random = new Random(0);
+		long origin = System.currentTimeMillis();
+		long day = TimeUnit.DAYS.toMillis(1);
+		List<Object[]> batch = new ArrayList<Object[]>();
+		for (int i = 0; i < rows; i++) {
+			Date start = new Date(origin + random.nextInt(180) * day
+					+ random.nextInt(24) * day / 24);
+			Date finish = new Date(start.getTime() + (1 + random.nextInt(10))
+					* day);
+			batch.add(new Object[] { String.format("%08d", i / 10),
+					String.format("%03d", i % 10 + 1),
+					"synthetic task description " + i, df.format(start),
+					tf.format(start), df.format(finish), tf.format(finish) });
+			if (batch.size() == 1000 || i == rows - 1) {
+				simpleJdbcTemplate.batchUpdate(
+						"INSERT INTO MSF623 VALUES (?, ?, ?, ?, ?, ?, ?)", batch);
+				batch.clear();
+			}
+		}
+		loader = new Msf623ScheduleLoader(simpleJdbcTemplate);
+		System.out.println("seeded " + rows + " rows");
+	}
+
+	private long print(int size) {
+		long t0 = System.nanoTime();
+		Schedule s = loader.load(size);
+		byte[] bs = new GanttPrint(s, GanttPrint.SIZE.A3).getBytes();
+		if (bs.length == 0)
+			throw new IllegalStateException("empty document");
+		return System.nanoTime() - t0;
+	}
+
+	/**
+	 * Prints each size sequentially and compares the heap still in use, after
+	 * a full collection, while the schedule and its print are referenced.
+	 *
+	 * @return the growth in retained heap per schedule row, or -1 for a
+	 *         single size
+	 */
+	private long measureHeapGrowth() {
+		long[] retained = new long[sizes.length];
+		for (int i = 0; i < sizes.length; i++) {
+			print(sizes[i]); /* warm up */
+			retained[i] = measureRetainedHeap(sizes[i]);
+		}
+		int rows = sizes[sizes.length - 1] - sizes[0];
+		if (rows == 0)
+			return -1;
+		long perRow = (retained[retained.length - 1] - retained[0]) / rows;
+		System.out.println("heap growth: " + perRow + " bytes per row");
+		return perRow;
+	}
+
+	/**
+	 * A method of its own, so that no print of an earlier size is still
+	 * referenced from a local variable when the heap is first measured.
+	 */
+	private long measureRetainedHeap(int size) {
+		long before = getUsedHeapAfterGc();
+		Schedule s = loader.load(size);
+		GanttPrint gp = new GanttPrint(s, GanttPrint.SIZE.A3);
+		long retained = getUsedHeapAfterGc() - before;
+		System.out.println("size " + size + ": retained heap " + retained
+				/ 1024 + "KB, document " + gp.getBytes().length / 1024 + "KB");
+		return retained;
+	}
+
+	private void soak(long heapPerRow) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			System.out.println("warming up for " + warmupSeconds + "s");
+			drive(executor, warmupSeconds);
+
+			liveHeap = 0;
+			long gcTime0 = getGcTime();
+			long t0 = System.nanoTime();
+			System.out.println("driving " + threads + " threads for "
+					+ durationSeconds + "s");
+			long[] latencies = drive(executor, durationSeconds);
+			double seconds = (System.nanoTime() - t0) / 1e9;
+			long gcTime = getGcTime() - gcTime0;
+
+			Arrays.sort(latencies);
+			long p50 = percentile(latencies, 0.50);
+			long p99 = percentile(latencies, 0.99);
+			System.out.println("prints: " + latencies.length);
+			System.out.println(String.format("throughput: %.1f prints/s",
+					latencies.length / seconds));
+			System.out.println("p50: " + p50 + "ms");
+			System.out.println("p99: " + p99 + "ms");
+			System.out.println("gc time: " + gcTime + "ms");
+			System.out.println("peak heap after gc: " + liveHeap / 1024 + "KB");
+			compareWithBaseline(heapPerRow, p50, p99);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private long[] drive(ExecutorService executor, int seconds)
+			throws Exception {
+		final long deadline = System.nanoTime()
+				+ TimeUnit.SECONDS.toNanos(seconds);
+		List<Future<long[]>> futures = new ArrayList<Future<long[]>>();
+		for (int t = 0; t < threads; t++) {
+			final Random random = new Random(t);
+			futures.add(executor.submit(new Callable<long[]>() {
+
+				@Override
+				public long[] call() {
+					long[] l = new long[64];
+					int n = 0;
+					while (System.nanoTime() < deadline) {
+						if (n == l.length)
+							l = Arrays.copyOf(l, n * 2);
+						l[n++] = print(sizes[random.nextInt(sizes.length)]);
+					}
+					return Arrays.copyOf(l, n);
+				}
+			}));
+		}
+		List<long[]> results = new ArrayList<long[]>();
+		int total = 0;
+		for (Future<long[]> f : futures) {
+			long[] l = null;
+			while (l == null) {
+				try {
+					l = f.get(1, TimeUnit.SECONDS);
+				} catch (TimeoutException e) {
+					liveHeap = Math.max(liveHeap, getHeapAfterLastGc());
+				}
+			}
+			results.add(l);
+			total += l.length;
+		}
+		long[] latencies = new long[total];
+		int at = 0;
+		for (long[] l : results) {
+			System.arraycopy(l, 0, latencies, at, l.length);
+			at += l.length;
+		}
+		return latencies;
+	}
+
+	/**
+	 * @return the percentile of sorted nanosecond latencies, in milliseconds
+	 */
+	private static long percentile(long[] sorted, double p) {
+		if (sorted.length == 0)
+			return 0;
+		int i = (int) Math.ceil(p * sorted.length) - 1;
+		return TimeUnit.NANOSECONDS.toMillis(sorted[Math.max(0, i)]);
+	}
+
+	/**
+	 * Checks the run against the stored baseline or, when there is none or
+	 * <code>record</code> is set, records it instead; a recording run compares
+	 * nothing, so it does not pass.
+	 */
+	private void compareWithBaseline(long heapPerRow, long p50, long p99)
+			throws IOException {
+		Properties baseline = new Properties();
+		if (baselineFile.exists() && !record) {
+			InputStream is = new FileInputStream(baselineFile);
+			try {
+				baseline.load(is);
+			} finally {
+				is.close();
+			}
+			check("p50", p50, Long.parseLong(baseline.getProperty("p50")), "ms");
+			check("p99", p99, Long.parseLong(baseline.getProperty("p99")), "ms");
+			String recorded = baseline.getProperty("heapPerRow");
+			if (heapPerRow >= 0 && recorded != null)
+				check("heap growth", heapPerRow, Long.parseLong(recorded),
+						" bytes per row");
+		} else {
+			baseline.setProperty("p50", String.valueOf(p50));
+			baseline.setProperty("p99", String.valueOf(p99));
+			if (heapPerRow >= 0)
+				baseline.setProperty("heapPerRow", String.valueOf(heapPerRow));
+			OutputStream os = new FileOutputStream(baselineFile);
+			try {
+				baseline.store(os, "GanttPrint load baseline, threads="
+						+ threads + " sizes=" + Arrays.toString(sizes));
+			} finally {
+				os.close();
+			}
+			failures.add("recorded baseline in " + baselineFile
+					+ " without comparing, run again to check against it");
+		}
+	}
+
+	private void check(String name, long actual, long baseline, String unit) {
+		long limit = (long) (baseline * (1 + tolerance));
+		System.out.println(name + " baseline: " + baseline + unit + ", limit "
+				+ limit + unit);
+		if (actual > limit)
+			failures.add(name + " of " + actual + unit
+					+ " regressed beyond baseline " + baseline + unit);
+	}
+
+	/**
+	 * @return the used heap once three full collections in a row free
+	 *         nothing more; some garbage, such as stale thread local entries,
+	 *         only becomes unreachable after a later collection
+	 */
+	private static long getUsedHeapAfterGc() {
+		MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+		long used = Long.MAX_VALUE;
+		int unchanged = 0;
+		for (int i = 0; i < 20 && unchanged < 3; i++) {
+			System.gc();
+			long u = memory.getHeapMemoryUsage().getUsed();
+			if (u < used) {
+				used = u;
+				unchanged = 0;
+			} else {
+				unchanged++;
+			}
+		}
+		return used;
+	}
+
+	/**
+	 * @return the sum over the heap pools of their usage after the most
+	 *         recent collection; unlike peak usage this excludes garbage
+	 */
+	private static long getHeapAfterLastGc() {
+		long used = 0;
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() != MemoryType.HEAP)
+				continue;
+			MemoryUsage usage = pool.getCollectionUsage();
+			if (usage != null)
+				used += usage.getUsed();
+		}
+		return used;
+	}
+
+	private static long getGcTime() {
+		long time = 0;
+		for (GarbageCollectorMXBean gc : ManagementFactory
+				.getGarbageCollectorMXBeans())
+			time += Math.max(0, gc.getCollectionTime());
+		return time;
+	}
+
+}
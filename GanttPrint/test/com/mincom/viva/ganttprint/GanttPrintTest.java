@@ -3,17 +3,9 @@ package com.mincom.viva.ganttprint;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.sql.ResultSet;
-import java.sql.SQLException;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.List;
-import java.util.TimeZone;
 
 import org.joda.time.DateTime;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.jdbc.core.simple.ParameterizedRowMapper;
 import org.springframework.jdbc.core.simple.SimpleJdbcTemplate;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit38.AbstractJUnit38SpringContextTests;
@@ -81,6 +73,95 @@ public class GanttPrintTest extends AbstractJUnit38SpringContextTests {
 		assertions(bs);
 	}
 
+	public void testManyYears() throws IOException {
+		Schedule s = new Schedule();
+		for (int i = 0; i < 1000; i++) {
+			ScheduleItem si = newScheduleItem(i * 5);
+			/* sub-point bars at a monthly scale */
+			si.setFinish(new DateTime(si.getStart()).plusHours(2).toDate());
+			s.add(si);
+		}
+		GanttPrint gp = new GanttPrint(s, GanttPrint.SIZE.A4);
+		assertEquals(GanttPrint.SCALE_LEVEL.MONTHLY, gp.timeline.scaleLevel);
+		/* 5000 days, but only the month boundaries are ticked */
+		assertTrue(gp.timeline.scaleLayout.ticks.length < 200);
+		byte[] bs = gp.getBytes();
+		assertions(bs);
+	}
+
+	public void testDependencies() throws IOException {
+		Schedule s = new Schedule();
+		for (int i = 0; i < 100; i++) {
+			ScheduleItem si = newScheduleItem(i * 3);
+			if (i > 0)
+				si.addPredecessor(s.get(i - 1));
+			if (i > 1 && i % 5 == 0)
+				si.addPredecessor(s.get(i - 2));
+			s.add(si);
+		}
+		GanttPrint gp = new GanttPrint(s, GanttPrint.SIZE.A3,
+				GanttPrint.OPTION.DEPENDENCY_CONNECTORS);
+		byte[] bs = gp.getBytes();
+		assertions(bs);
+	}
+
+	/* compiled callers link against the original signatures */
+	public void testConstructors() throws NoSuchMethodException {
+		GanttPrint.class.getConstructor(Schedule.class);
+		GanttPrint.class.getConstructor(Schedule.class, GanttPrint.SIZE.class);
+	}
+
+	public void testDependencyCycle() throws IOException {
+		Schedule s = new Schedule();
+		ScheduleItem a = newScheduleItem(0);
+		ScheduleItem b = newScheduleItem(1);
+		a.addPredecessor(b);
+		b.addPredecessor(a);
+		s.add(a);
+		s.add(b);
+		/* prints without critical path or connectors */
+		GanttPrint gp = new GanttPrint(s, GanttPrint.SIZE.A3,
+				GanttPrint.OPTION.DEPENDENCY_CONNECTORS);
+		byte[] bs = gp.getBytes();
+		assertions(bs);
+	}
+
+	public void testOverlay() throws IOException {
+		Schedule baseline = new Schedule();
+		Schedule current = new Schedule();
+		for (int i = 0; i < 100; i++) {
+			ScheduleItem si = newScheduleItem(i);
+			si.setTaskNo(String.format("%03d", i));
+			if (i % 10 != 0)
+				baseline.add(si);
+			ScheduleItem rescheduled = newScheduleItem(i + i % 3);
+			rescheduled.setTaskNo(si.getTaskNo());
+			if (i % 10 != 5)
+				current.add(rescheduled);
+		}
+		GanttPrint gp = new GanttPrint(baseline, current, GanttPrint.SIZE.A3);
+		byte[] bs = gp.getBytes();
+		assertions(bs);
+	}
+
+	/**
+	 * Set the ganttprint.unicodeFont system property to a TrueType font with
+	 * Cyrillic and CJK glyphs to see them printed.
+	 */
+	public void testUnicode() throws IOException {
+		Schedule s = new Schedule();
+		String[] descriptions = { "\u0437\u0430\u043c\u0435\u043d\u0430 \u043d\u0430\u0441\u043e\u0441\u0430",
+				"\u6cf5\u7684\u66f4\u6362", "pump replacement" };
+		for (int i = 0; i < 100; i++) {
+			ScheduleItem si = newScheduleItem(i);
+			si.setDescription(descriptions[i % descriptions.length]);
+			s.add(si);
+		}
+		GanttPrint gp = new GanttPrint(s, GanttPrint.SIZE.A3);
+		byte[] bs = gp.getBytes();
+		assertions(bs);
+	}
+
 //	public void testMany() throws IOException {
 //		Schedule s = buildScheduleFromDatabase();
 //		GanttPrint gp = new GanttPrint(s);
@@ -89,64 +170,7 @@ public class GanttPrintTest extends AbstractJUnit38SpringContextTests {
 //	}
 
 	private Schedule buildScheduleFromDatabase() {
-		Schedule s = new Schedule();
-
-		@SuppressWarnings({ "deprecation" })
-		List<ScheduleItem> scheduleItems = simpleJdbcTemplate
-				.query("SELECT * FROM MSF623 WHERE PLAN_STR_DATE != ' ' AND PLAN_FIN_DATE != ' ' AND ROWNUM < 5001",
-						new ParameterizedRowMapper<ScheduleItem>() {
-
-							@Override
-							public ScheduleItem mapRow(ResultSet rs, int rowNum)
-									throws SQLException {
-								ScheduleItem si = new ScheduleItem();
-								si.setWorkOrder(rs.getString("WORK_ORDER"));
-								si.setTaskNo(rs.getString("WO_TASK_NO"));
-								si.setDescription(rs.getString("WO_TASK_DESC"));
-								Date startDate = parseDate(rs
-										.getString("PLAN_STR_DATE"));
-								Date start = parseDateTime(startDate,
-										rs.getString("PLAN_STR_TIME"));
-								si.setStart(start);
-								Date finishDate = parseDate(rs
-										.getString("PLAN_FIN_DATE"));
-								Date finish = parseDateTime(finishDate,
-										rs.getString("PLAN_FIN_TIME"));
-								si.setFinish(finish);
-
-								return si;
-							}
-
-							SimpleDateFormat df, tf;
-
-							{
-								df = new SimpleDateFormat("yyyyMMdd");
-								df.setTimeZone(TimeZone.getTimeZone("GMT"));
-								tf = new SimpleDateFormat("HHmmss");
-								tf.setTimeZone(TimeZone.getTimeZone("GMT"));
-							}
-
-							private Date parseDate(String dateString) {
-								try {
-									return df.parse(dateString);
-								} catch (ParseException e) {
-									throw new RuntimeException(e);
-								}
-							}
-
-							private Date parseDateTime(Date date,
-									String timeString) {
-								Date time = new Date(0);
-								try {
-									time = tf.parse(timeString);
-								} catch (ParseException e) {
-									// squash
-								}
-								return new Date(date.getTime() + time.getTime());
-							}
-						}, new Object[] {});
-
-		s.addAll(scheduleItems);
+		Schedule s = new Msf623ScheduleLoader(simpleJdbcTemplate).load(5000);
 		System.out.println(s.size() + " schedule items");
 		return s;
 	}
@@ -0,0 +1,87 @@
+package com.mincom.viva.ganttprint;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+
+import org.springframework.jdbc.core.simple.ParameterizedRowMapper;
+import org.springframework.jdbc.core.simple.SimpleJdbcTemplate;
+
+/**
+ * Loads a {@link Schedule} from the planned dates of the MSF623 work order
+ * task table.
+ */
+class Msf623ScheduleLoader {
+
+	static final String QUERY = "SELECT * FROM MSF623 WHERE PLAN_STR_DATE != ' ' AND PLAN_FIN_DATE != ' ' AND ROWNUM <= ?";
+
+	private final SimpleJdbcTemplate simpleJdbcTemplate;
+
+	Msf623ScheduleLoader(SimpleJdbcTemplate simpleJdbcTemplate) {
+		this.simpleJdbcTemplate = simpleJdbcTemplate;
+	}
+
+	Schedule load(int maxRows) {
+		Schedule s = new Schedule();
+
+		@SuppressWarnings({ "deprecation" })
+		List<ScheduleItem> scheduleItems = simpleJdbcTemplate.query(QUERY,
+				new ParameterizedRowMapper<ScheduleItem>() {
+
+					@Override
+					public ScheduleItem mapRow(ResultSet rs, int rowNum)
+							throws SQLException {
+						ScheduleItem si = new ScheduleItem();
+						si.setWorkOrder(rs.getString("WORK_ORDER"));
+						si.setTaskNo(rs.getString("WO_TASK_NO"));
+						si.setDescription(rs.getString("WO_TASK_DESC"));
+						Date startDate = parseDate(rs.getString("PLAN_STR_DATE"));
+						Date start = parseDateTime(startDate,
+								rs.getString("PLAN_STR_TIME"));
+						si.setStart(start);
+						Date finishDate = parseDate(rs
+								.getString("PLAN_FIN_DATE"));
+						Date finish = parseDateTime(finishDate,
+								rs.getString("PLAN_FIN_TIME"));
+						si.setFinish(finish);
+
+						return si;
+					}
+
+					SimpleDateFormat df, tf;
+
+					{
+						df = new SimpleDateFormat("yyyyMMdd");
+						df.setTimeZone(TimeZone.getTimeZone("GMT"));
+						tf = new SimpleDateFormat("HHmmss");
+						tf.setTimeZone(TimeZone.getTimeZone("GMT"));
+					}
+
+					private Date parseDate(String dateString) {
+						try {
+							return df.parse(dateString);
+						} catch (ParseException e) {
+							throw new RuntimeException(e);
+						}
+					}
+
+					private Date parseDateTime(Date date, String timeString) {
+						Date time = new Date(0);
+						try {
+							time = tf.parse(timeString);
+						} catch (ParseException e) {
+							// squash
+						}
+						return new Date(date.getTime() + time.getTime());
+					}
+				}, maxRows);
+
+		s.addAll(scheduleItems);
+		return s;
+	}
+
+}
@@ -0,0 +1,130 @@
+package com.mincom.viva.ganttprint;
+
+import junit.framework.TestCase;
+
+import org.joda.time.DateTime;
+
+import com.lowagie.text.Rectangle;
+import com.lowagie.text.pdf.PdfContentByte;
+import com.mincom.viva.ganttprint.GanttPrint.SCALE_LEVEL;
+
+public class ScaleLayoutTest extends TestCase {
+
+	/* a monday */
+	private final DateTime origin = new DateTime(2010, 1, 4, 0, 0, 0, 0);
+
+	private void assertLevelOfDetail(ScaleLayout layout) {
+		for (int i = 1; i < layout.tickX.length; i++)
+			assertTrue("tick " + i + " too close", layout.tickX[i]
+					- layout.tickX[i - 1] >= ScaleLayout.MIN_TICK_SPACING);
+		for (int i = 0; i < layout.shadeWidth.length; i++)
+			assertTrue("span " + i + " too narrow",
+					layout.shadeWidth[i] >= ScaleLayout.MIN_SHADE_WIDTH);
+	}
+
+	public void testMonthly() {
+		Timeline timeline = new Timeline(origin, origin.plusYears(3), 1000,
+				null);
+		assertEquals(SCALE_LEVEL.MONTHLY, timeline.scaleLevel);
+		ScaleLayout layout = timeline.scaleLayout;
+		assertTrue(layout.ticks.length > 30);
+		for (DateTime tick : layout.ticks) {
+			assertEquals(1, tick.getDayOfMonth());
+			assertEquals(0, tick.getMillisOfDay());
+		}
+		assertLevelOfDetail(layout);
+	}
+
+	/**
+	 * A wednesday to a thursday, padded out to the two weeks from the monday.
+	 */
+	private Timeline newTwoWeekTimeline(float barWidth) {
+		Timeline timeline = new Timeline(origin.plusDays(2),
+				origin.plusDays(10), barWidth, null);
+		assertEquals(SCALE_LEVEL.DAILY, timeline.scaleLevel);
+		assertEquals(origin, timeline.first);
+		return timeline;
+	}
+
+	public void testDailyTooNarrow() {
+		/* 5 points for two weeks is well under a point per day */
+		ScaleLayout layout = newTwoWeekTimeline(5).scaleLayout;
+		assertTrue(layout.ticks.length < 14);
+		assertTrue(layout.ticks.length > 0);
+		/* a two day weekend is narrower than a point, so nothing is shaded */
+		assertEquals(0, layout.shadeX.length);
+		assertLevelOfDetail(layout);
+	}
+
+	public void testDaily() {
+		ScaleLayout layout = newTwoWeekTimeline(1000).scaleLayout;
+		/* every day is ticked and both weekends shaded */
+		assertEquals(14, layout.ticks.length);
+		assertEquals(2, layout.shadeX.length);
+		assertLevelOfDetail(layout);
+	}
+
+	/**
+	 * @return a calendar with a shutdown over the working days of the week
+	 *         starting <code>monday</code>
+	 */
+	private WorkCalendar newShutdownCalendar(DateTime monday) {
+		WorkCalendar wc = new WorkCalendar();
+		wc.addNonWorking(monday.toLocalDate(), monday.plusDays(4)
+				.toLocalDate());
+		return wc;
+	}
+
+	public void testSpansMerged() {
+		/* a wednesday to a thursday, padded out to three weeks */
+		Timeline timeline = new Timeline(origin.plusDays(2), origin
+				.plusDays(17), 1000, newShutdownCalendar(origin.plusWeeks(1)));
+		assertEquals(SCALE_LEVEL.DAILY, timeline.scaleLevel);
+		ScaleLayout layout = timeline.scaleLayout;
+		/* the shutdown and the weekends either side are one span */
+		assertEquals(2, layout.shadeX.length);
+		assertEquals(timeline.getX(origin.plusDays(5).getMillis()),
+				layout.shadeX[0], 0.01f);
+		assertEquals(9 * timeline.getPointsPerDay(), layout.shadeWidth[0],
+				0.01f);
+		assertEquals(2 * timeline.getPointsPerDay(), layout.shadeWidth[1],
+				0.01f);
+	}
+
+	public void testMonthlyShadesOnlyLongSpans() {
+		Timeline timeline = new Timeline(origin, origin.plusYears(3), 1000,
+				newShutdownCalendar(origin.plusWeeks(10)));
+		assertEquals(SCALE_LEVEL.MONTHLY, timeline.scaleLevel);
+		ScaleLayout layout = timeline.scaleLayout;
+		/* plain weekends are shorter than MONTHLY_MIN_SHADE_DAYS */
+		assertTrue(2 < ScaleLayout.MONTHLY_MIN_SHADE_DAYS);
+		assertEquals(1, layout.shadeX.length);
+		assertEquals(9 * timeline.getPointsPerDay(), layout.shadeWidth[0],
+				0.01f);
+		assertLevelOfDetail(layout);
+	}
+
+	public void testSubPointBarIsMarker() throws Exception {
+		Schedule s = new Schedule();
+		ScheduleItem wide = ScheduleItems.newScheduleItem(origin, 30);
+		ScheduleItem narrow = ScheduleItems.newScheduleItem(origin
+				.plusYears(3), 0);
+		narrow.setFinish(origin.plusYears(3).plusHours(2).toDate());
+		s.add(wide);
+		s.add(narrow);
+		GanttPrint gp = new GanttPrint(s, GanttPrint.SIZE.A4);
+		Rectangle position = new Rectangle(0, 0, gp.timeline.barWidth, 15);
+
+		/* rounded bars are drawn with curves, markers as plain rectangles */
+		PdfContentByte canvas = new PdfContentByte(null);
+		new PdfPCellEventImpl(gp, narrow, 1).paintBar(canvas, position);
+		String marker = canvas.getInternalBuffer().toString();
+		assertTrue(marker.indexOf(" re") >= 0);
+		assertTrue(marker.indexOf(" c\n") < 0);
+
+		canvas = new PdfContentByte(null);
+		new PdfPCellEventImpl(gp, wide, 0).paintBar(canvas, position);
+		assertTrue(canvas.getInternalBuffer().toString().indexOf(" c\n") >= 0);
+	}
+
+}
@@ -0,0 +1,25 @@
+package com.mincom.viva.ganttprint;
+
+import org.joda.time.DateTime;
+
+/**
+ * Schedule items for the unit tests.
+ */
+class ScheduleItems {
+
+	static ScheduleItem newScheduleItem(String workOrder, String taskNo) {
+		ScheduleItem si = new ScheduleItem();
+		si.setWorkOrder(workOrder);
+		si.setTaskNo(taskNo);
+		si.setDescription("work order description has 40 characters");
+		return si;
+	}
+
+	static ScheduleItem newScheduleItem(DateTime start, int days) {
+		ScheduleItem si = newScheduleItem("12345678", "001");
+		si.setStart(start.toDate());
+		si.setFinish(start.plusDays(days).toDate());
+		return si;
+	}
+
+}
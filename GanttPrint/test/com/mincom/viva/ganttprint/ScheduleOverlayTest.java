@@ -0,0 +1,163 @@
+package com.mincom.viva.ganttprint;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class ScheduleOverlayTest extends TestCase {
+
+	private Schedule newSchedule(String... keys) {
+		Schedule s = new Schedule();
+		for (String key : keys)
+			s.add(ScheduleItems.newScheduleItem(key.substring(0, 8), key
+					.substring(8)));
+		return s;
+	}
+
+	/**
+	 * @return the rows of the overlay as {baseline index, current index}
+	 */
+	private List<int[]> getRows(ScheduleOverlay o) {
+		final List<int[]> rows = new ArrayList<int[]>();
+		o.forEachRow(new ScheduleOverlay.RowCallback() {
+
+			@Override
+			public void processRow(int baselineIndex, int currentIndex) {
+				rows.add(new int[] { baselineIndex, currentIndex });
+			}
+		});
+		assertEquals(o.size(), rows.size());
+		return rows;
+	}
+
+	private List<int[]> assertOverlay(Schedule baseline, Schedule current) {
+		ScheduleOverlay o = new ScheduleOverlay(baseline, current);
+		assertEquals(4, o.size());
+		assertEquals(1, o.getAddedCount());
+		assertEquals(1, o.getRemovedCount());
+		List<int[]> rows = getRows(o);
+		int matched = 0;
+		for (int[] row : rows) {
+			if (row[0] >= 0 && row[1] >= 0) {
+				matched++;
+				ScheduleItem b = baseline.get(row[0]);
+				ScheduleItem c = current.get(row[1]);
+				assertEquals(b.getWorkOrder(), c.getWorkOrder());
+				assertEquals(b.getTaskNo(), c.getTaskNo());
+			} else if (row[0] < 0) {
+				assertEquals("00000004", current.get(row[1]).getWorkOrder());
+			} else {
+				assertEquals("00000001", baseline.get(row[0]).getWorkOrder());
+				assertEquals(-1, row[1]);
+			}
+		}
+		assertEquals(2, matched);
+		return rows;
+	}
+
+	public void testSorted() {
+		Schedule baseline = newSchedule("00000001001", "00000002001",
+				"00000002002");
+		Schedule current = newSchedule("00000002001", "00000002002",
+				"00000004001");
+		List<int[]> rows = assertOverlay(baseline, current);
+		/* rows are in key order */
+		assertEquals(0, rows.get(0)[0]);
+		assertEquals(-1, rows.get(0)[1]);
+		assertEquals(2, rows.get(3)[1]);
+	}
+
+	public void testUnsorted() {
+		Schedule baseline = newSchedule("00000002002", "00000001001",
+				"00000002001");
+		Schedule current = newSchedule("00000004001", "00000002001",
+				"00000002002");
+		List<int[]> rows = assertOverlay(baseline, current);
+		/* removed items follow the current schedule */
+		assertEquals(1, rows.get(3)[0]);
+		assertEquals(-1, rows.get(3)[1]);
+	}
+
+	public void testDuplicates() {
+		Schedule baseline = newSchedule("00000002001", "00000001001",
+				"00000001001");
+		Schedule current = newSchedule("00000001001", "00000001001",
+				"00000001001");
+		ScheduleOverlay o = new ScheduleOverlay(baseline, current);
+		assertEquals(4, o.size());
+		assertEquals(1, o.getAddedCount());
+		assertEquals(1, o.getRemovedCount());
+		List<int[]> rows = getRows(o);
+		assertEquals(1, rows.get(0)[0]);
+		assertEquals(2, rows.get(1)[0]);
+	}
+
+	private void assertLarge(int n, ScheduleOverlay o) {
+		assertEquals(n / 100, o.getAddedCount());
+		assertEquals(n / 100, o.getRemovedCount());
+		assertEquals(n, o.size());
+	}
+
+	private void assertModified(ScheduleOverlay o) {
+		try {
+			getRows(o);
+			fail("expected modified schedules to be detected");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+	}
+
+	public void testModified() {
+		Schedule baseline = new Schedule();
+		Schedule current = new Schedule();
+		for (int i = 0; i < 10; i++) {
+			String taskNo = String.format("%03d", i);
+			baseline.add(ScheduleItems.newScheduleItem("12345678", taskNo));
+			current.add(ScheduleItems.newScheduleItem("12345678", taskNo));
+		}
+		ScheduleOverlay o = new ScheduleOverlay(baseline, current);
+		Collections.swap(current, 2, 3);
+		assertModified(o);
+
+		o = new ScheduleOverlay(baseline, current);
+		current.remove(0);
+		assertModified(o);
+	}
+
+	public void testLarge() {
+		int n = 100000;
+		Schedule baseline = new Schedule();
+		Schedule current = new Schedule();
+		for (int i = 0; i < n; i++) {
+			String workOrder = String.format("%08d", i / 10);
+			String taskNo = String.format("%03d", i % 10);
+			if (i % 100 != 0)
+				baseline.add(ScheduleItems.newScheduleItem(workOrder, taskNo));
+			if (i % 100 != 50)
+				current.add(ScheduleItems.newScheduleItem(workOrder, taskNo));
+		}
+
+		long t0 = System.currentTimeMillis();
+		ScheduleOverlay sorted = new ScheduleOverlay(baseline, current);
+		assertEquals(n, getRows(sorted).size());
+		long mergeElapsed = System.currentTimeMillis() - t0;
+		assertLarge(n, sorted);
+
+		Collections.shuffle(baseline, new Random(0));
+		Collections.shuffle(current, new Random(1));
+		t0 = System.currentTimeMillis();
+		ScheduleOverlay unsorted = new ScheduleOverlay(baseline, current);
+		assertEquals(n, getRows(unsorted).size());
+		long hashElapsed = System.currentTimeMillis() - t0;
+		assertLarge(n, unsorted);
+
+		System.out.println("overlay of " + n + " items: merge "
+				+ mergeElapsed + "ms, hash " + hashElapsed + "ms");
+		assertTrue("merge took " + mergeElapsed + "ms", mergeElapsed < 1000);
+		assertTrue("hash took " + hashElapsed + "ms", hashElapsed < 1000);
+	}
+
+}
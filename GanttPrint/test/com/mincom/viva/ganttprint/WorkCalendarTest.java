@@ -0,0 +1,105 @@
+package com.mincom.viva.ganttprint;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.BitSet;
+
+import junit.framework.TestCase;
+
+import org.joda.time.DateTimeZone;
+import org.joda.time.LocalDate;
+
+public class WorkCalendarTest extends TestCase {
+
+	private static final String CALENDAR = "# test site\n" + "name Site A\n"
+			+ "weekend SAT SUN\n" + "holiday 2010-01-26\n"
+			+ "shutdown 2010-02-01 2010-02-14\n" + "work 2010-02-06\n";
+
+	/* a monday */
+	private final LocalDate first = new LocalDate(2010, 1, 4);
+
+	public void testDefault() {
+		WorkCalendar wc = new WorkCalendar();
+		BitSet bs = wc.compile(first, 14);
+		assertEquals(4, bs.cardinality());
+		assertTrue(bs.get(5));
+		assertTrue(bs.get(6));
+		assertFalse(bs.get(7));
+		assertTrue(wc.isWorking(first));
+	}
+
+	public void testParse() throws IOException {
+		WorkCalendar wc = WorkCalendar.parse(new StringReader(CALENDAR));
+		assertEquals("Site A", wc.getName());
+		assertFalse(wc.isWorking(new LocalDate(2010, 1, 26)));
+		assertFalse(wc.isWorking(new LocalDate(2010, 2, 1)));
+		assertTrue(wc.isWorking(new LocalDate(2010, 2, 6)));
+		BitSet bs = wc.compile(first, 56);
+		assertEquals(22, bs.nextSetBit(21));
+		assertEquals(23, bs.nextClearBit(22));
+		/* shutdown merges with the surrounding weekends, less the worked day */
+		assertEquals(26, bs.nextSetBit(23));
+		assertEquals(33, bs.nextClearBit(26));
+		assertEquals(42, bs.nextClearBit(34));
+	}
+
+	public void testShiftPattern() throws IOException {
+		WorkCalendar wc = WorkCalendar.parse(new StringReader(
+				"pattern 2010-01-01 WWWWNNN\n"));
+		BitSet bs = wc.compile(first, 14);
+		/* the 4th is day 3 of the pattern */
+		assertFalse(bs.get(0));
+		assertTrue(bs.get(1));
+		assertTrue(bs.get(3));
+		assertFalse(bs.get(4));
+		assertEquals(6, bs.cardinality());
+	}
+
+	public void testInvalid() {
+		try {
+			WorkCalendar.parse(new StringReader("name x\nholiday 2010-13-45\n"));
+			fail("expected invalid date to be rejected");
+		} catch (IOException e) {
+			assertTrue(e.getMessage().indexOf("line 2") >= 0);
+		}
+	}
+
+	public void testMidnightGap() throws IOException {
+		/* clocks went forward at midnight on 2010-10-17 in Sao Paulo */
+		DateTimeZone zone = DateTimeZone.getDefault();
+		DateTimeZone.setDefault(DateTimeZone.forID("America/Sao_Paulo"));
+		try {
+			WorkCalendar wc = WorkCalendar.parse(new StringReader(
+					"holiday 2010-10-17\n"));
+			assertFalse(wc.isWorking(new LocalDate(2010, 10, 17)));
+		} finally {
+			DateTimeZone.setDefault(zone);
+		}
+	}
+
+	public void testLoadIsCached() throws IOException {
+		File file = File.createTempFile(getClass().getSimpleName(), ".cal");
+		file.deleteOnExit();
+		FileWriter fw = new FileWriter(file);
+		fw.write(CALENDAR);
+		fw.close();
+		WorkCalendar wc = WorkCalendar.load(file);
+		assertSame(wc, WorkCalendar.load(file));
+	}
+
+	public void testParsedIsReadOnly() throws IOException {
+		WorkCalendar wc = WorkCalendar.parse(new StringReader(CALENDAR));
+		assertTrue(wc.isReadOnly());
+		try {
+			wc.addNonWorking(first, first);
+			fail("expected parsed calendar to be read-only");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+		assertTrue(wc.isWorking(first));
+		assertFalse(new WorkCalendar().isReadOnly());
+	}
+
+}